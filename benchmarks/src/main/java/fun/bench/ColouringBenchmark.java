@@ -0,0 +1,77 @@
+package fun.bench;
+
+import fun.ColourMap;
+import fun.Coloring;
+import fun.IterationBuffer;
+import fun.Palette;
+import fun.PixelBuffer;
+import fun.RenderEngine;
+import fun.RenderScheduler;
+import fun.SmoothBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Colouring a 3840x2160 frame whose iteration data is already known: straight from iteration counts and |z|^2, as
+ * every render does it, against recolouring stored smooth counts through a palette, plain and equalised. Scores are
+ * ms/frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColouringBenchmark {
+    private static final int WIDTH = 3840;
+    private static final int HEIGHT = 2160;
+
+    private IterationBuffer iterations;
+    private SmoothBuffer smooth;
+    private ColourMap equalised;
+    private final PixelBuffer pixels = new PixelBuffer(WIDTH, HEIGHT);
+
+    @Setup
+    public void setUp() throws Exception {
+        Logger.getLogger(RenderEngine.class.getName()).setLevel(Level.WARNING);
+        iterations = RenderEngine.builder().mode(RenderEngine.Mode.MARIANI_SILVER).build()
+                .iterate(Viewpoints.SEAHORSE.parameters(1000), WIDTH, HEIGHT).get();
+        RenderScheduler.shared().shutdown();
+        smooth = SmoothBuffer.of(iterations);
+        equalised = Palette.named("ultra").equalised(iterations.histogram());
+    }
+
+    @Benchmark
+    public PixelBuffer fromIterations() {
+        final int[] counts = iterations.iterations;
+        final double[] modulusSquared = iterations.modulusSquared;
+        for (int i = 0; i < counts.length; i++) {
+            pixels.pixels[i] = Coloring.argb(counts[i], modulusSquared[i], iterations.bailout);
+        }
+        return pixels;
+    }
+
+    @Benchmark
+    public PixelBuffer palette() {
+        smooth.colour(0, 0, WIDTH, HEIGHT, Palette.named("ultra"), pixels);
+        return pixels;
+    }
+
+    @Benchmark
+    public PixelBuffer equalised() {
+        smooth.colour(0, 0, WIDTH, HEIGHT, equalised, pixels);
+        return pixels;
+    }
+}
@@ -0,0 +1,102 @@
+package fun.bench;
+
+import fun.BatchKernel;
+import fun.FractalKernel;
+import fun.MandelbrotKernel;
+import fun.RenderParameters;
+import fun.ScalarBatchKernel;
+import fun.Viewport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What going through {@link FractalKernel} costs: the scalar Mandelbrot loop called directly, as renders did before
+ * there were other fractals, against the same loop behind the interface, both from a call site that has only seen
+ * the one fractal and from one that has seen all of them. One 64x64 tile of a fixed view; scores are points/sec.
+ *
+ * "mandelbrot" here is the scalar loop rather than the vector one, so that it compares with {@link #inlineLoop},
+ * which doesn't depend on the fractal at all. The other fractals show what each of their own loops manages.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(FractalKernelBenchmark.POINTS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FractalKernelBenchmark {
+    static final int SIZE = 64;
+    static final int POINTS = SIZE * SIZE;
+    private static final String[] FRACTALS = {"mandelbrot", "julia:-0.8,0.156", "multibrot:3", "burning-ship"};
+
+    @Param({"SEAHORSE", "INTERIOR", "EXTERIOR"})
+    public Viewpoints viewpoint;
+
+    @Param({"100", "1000"})
+    public int bailout;
+
+    @Param({"mandelbrot", "julia:-0.8,0.156", "multibrot:3", "burning-ship"})
+    public String fractal;
+
+    private final double[] cx = new double[POINTS];
+    private final double[] cy = new double[POINTS];
+    private final int[] iterations = new int[POINTS];
+    private final double[] modulusSquared = new double[POINTS];
+    private final BatchKernel scalar = new ScalarBatchKernel();
+    private FractalKernel kernel;
+
+    @Setup
+    public void setUp() {
+        final RenderParameters parameters = viewpoint.parameters(bailout);
+        final Viewport viewport = new Viewport(parameters, SIZE, SIZE);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                cx[y * SIZE + x] = viewport.real(x);
+                cy[y * SIZE + x] = viewport.imaginary(y);
+            }
+        }
+        kernel = scalarOrNamed(fractal);
+        // every fractal through the shared call site, so that its profile has seen them all
+        for (int round = 0; round < 20_000; round++) {
+            shared(scalarOrNamed(FRACTALS[round % FRACTALS.length]), 16, 16);
+        }
+    }
+
+    @Benchmark
+    public int[] inlineLoop() {
+        scalar.iterate(cx, cy, POINTS, bailout, iterations, modulusSquared);
+        return iterations;
+    }
+
+    @Benchmark
+    public int[] monomorphic() {
+        kernel.iterate(cx, cy, POINTS, bailout, iterations, modulusSquared);
+        return iterations;
+    }
+
+    @Benchmark
+    public int[] megamorphic() {
+        shared(kernel, POINTS, bailout);
+        return iterations;
+    }
+
+    private void shared(FractalKernel fractalKernel, int count, int bail) {
+        fractalKernel.iterate(cx, cy, count, bail, iterations, modulusSquared);
+    }
+
+    private static FractalKernel scalarOrNamed(String name) {
+        return name.equals("mandelbrot") ? new MandelbrotKernel(new ScalarBatchKernel()) : FractalKernel.named(name);
+    }
+}
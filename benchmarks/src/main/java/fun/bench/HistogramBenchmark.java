@@ -0,0 +1,64 @@
+package fun.bench;
+
+import fun.Histogram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Histogram increments from one thread and from as many threads as there are processors, all bumping the same
+ * histogram. Scores are increments/sec.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistogramBenchmark {
+
+    @Param({"100", "10000"})
+    public int bailout;
+
+    private Histogram histogram;
+
+    @State(Scope.Thread)
+    public static class Points {
+        int next = 0;
+    }
+
+    @Setup
+    public void setUp() {
+        histogram = new Histogram(bailout + 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void uncontended(Points points) {
+        increment(points);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void contended(Points points) {
+        increment(points);
+    }
+
+    private void increment(Points points) {
+        // a few hot values, like a render where most points escape quickly or not at all
+        points.next = (points.next * 1103515245 + 12345) & 0x7FFFFFFF;
+        final int point = (points.next & 3) == 0 ? points.next % (bailout + 1) : points.next & 7;
+        histogram.increment(point);
+    }
+}
@@ -0,0 +1,89 @@
+package fun.bench;
+
+import fun.BatchKernel;
+import fun.InteriorCheckingKernel;
+import fun.IterationResult;
+import fun.RenderParameters;
+import fun.ScalarBatchKernel;
+import fun.Viewport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The iteration kernels on one 64x64 tile of a fixed view. Scores are points/sec.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(KernelBenchmark.POINTS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KernelBenchmark {
+    static final int SIZE = 64;
+    static final int POINTS = SIZE * SIZE;
+
+    @Param({"SEAHORSE", "INTERIOR", "EXTERIOR"})
+    public Viewpoints viewpoint;
+
+    @Param({"100", "1000", "10000"})
+    public int bailout;
+
+    private final double[] cx = new double[POINTS];
+    private final double[] cy = new double[POINTS];
+    private final int[] iterations = new int[POINTS];
+    private final double[] modulusSquared = new double[POINTS];
+    private final BatchKernel scalar = new ScalarBatchKernel();
+    private final BatchKernel best = BatchKernel.best();
+    private final BatchKernel interiorChecking = new InteriorCheckingKernel();
+
+    @Setup
+    public void setUp() {
+        final RenderParameters parameters = viewpoint.parameters(bailout);
+        final Viewport viewport = new Viewport(parameters, SIZE, SIZE);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                cx[y * SIZE + x] = viewport.real(x);
+                cy[y * SIZE + x] = viewport.imaginary(y);
+            }
+        }
+    }
+
+    @Benchmark
+    public void iterationResultOf(Blackhole blackhole) {
+        for (int i = 0; i < POINTS; i++) {
+            blackhole.consume(IterationResult.of(cx[i], cy[i], bailout));
+        }
+    }
+
+    @Benchmark
+    public int[] scalarBatch() {
+        scalar.iterate(cx, cy, POINTS, bailout, iterations, modulusSquared);
+        return iterations;
+    }
+
+    @Benchmark
+    public int[] bestBatch() {
+        best.iterate(cx, cy, POINTS, bailout, iterations, modulusSquared);
+        return iterations;
+    }
+
+    @Benchmark
+    public int[] interiorCheckingBatch() {
+        interiorChecking.iterate(cx, cy, POINTS, bailout, iterations, modulusSquared);
+        return iterations;
+    }
+}
@@ -0,0 +1,66 @@
+package fun.bench;
+
+import fun.PixelBuffer;
+import fun.RenderEngine;
+import fun.RenderParameters;
+import fun.RenderScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A complete headless render of a fixed view, including colouring. Scores are ms/frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"256", "1024", "2048"})
+    public int size;
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    @Param({"BRUTE_FORCE", "MARIANI_SILVER"})
+    public RenderEngine.Mode mode;
+
+    private static final Logger ENGINE_LOG = Logger.getLogger(RenderEngine.class.getName());
+
+    private final RenderParameters parameters = Viewpoints.SEAHORSE.parameters(1000);
+    private RenderScheduler scheduler;
+    private RenderEngine engine;
+
+    @Setup
+    public void setUp() {
+        ENGINE_LOG.setLevel(Level.WARNING);
+        scheduler = new RenderScheduler(threads);
+        engine = RenderEngine.builder().scheduler(scheduler).mode(mode).build();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public PixelBuffer render() throws Exception {
+        return engine.render(parameters, size, size).get();
+    }
+}
@@ -0,0 +1,34 @@
+package fun.bench;
+
+import fun.Complex;
+import fun.RenderParameters;
+
+/**
+ * Fixed views the benchmarks run against, so results stay comparable between runs.
+ */
+public enum Viewpoints {
+    /**
+     * Mostly boundary, the expensive mixed case.
+     */
+    SEAHORSE(new Complex(-0.75, 0.1), 0.2),
+    /**
+     * Entirely inside the main cardioid, every point runs to the bailout.
+     */
+    INTERIOR(new Complex(-0.1, 0.1), 0.05),
+    /**
+     * Entirely outside the set, points escape within a few iterations.
+     */
+    EXTERIOR(new Complex(1.5, 1.5), 0.5);
+
+    public final Complex center;
+    public final double width;
+
+    Viewpoints(Complex center, double width) {
+        this.center = center;
+        this.width = width;
+    }
+
+    public RenderParameters parameters(int bailout) {
+        return new RenderParameters(center, width, bailout);
+    }
+}
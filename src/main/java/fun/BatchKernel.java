@@ -0,0 +1,44 @@
+package fun;
+
+/**
+ * The Mandelbrot iteration applied to a whole batch of points at once, held in primitive arrays, so that a row or
+ * tile can be computed without allocating anything per point.
+ *
+ * Results are identical to {@link IterationResult#of(double, double, int)}: the iteration count, and the squared
+ * modulus of z when iteration stopped.
+ */
+public interface BatchKernel {
+
+    void iterate(double[] cx, double[] cy, int count, int bailout, int[] iterations, double[] modulusSquared);
+
+    /**
+     * Carry points on from wherever they got to, as an earlier call left them, up to a bailout that may be higher than
+     * it was then. On the way in {@code iterations}, {@code zx} and {@code zy} hold each point's count so far and its
+     * z, with a count of 0 and z = c for a fresh point; on the way out they hold where it stopped this time. A point
+     * that starts at the bailout it's given is left alone.
+     *
+     * Carried on this way, a point ends up exactly where {@link #iterate} would have taken it in one go. This default
+     * goes one point at a time.
+     */
+    default void resume(double[] cx, double[] cy, int count, int bailout, int[] iterations, double[] zx, double[] zy,
+                        double[] modulusSquared) {
+        for (int i = 0; i < count; i++) {
+            ScalarBatchKernel.resumeOne(cx, cy, i, bailout, iterations, zx, zy, modulusSquared);
+        }
+    }
+
+    String name();
+
+    /**
+     * The fastest kernel this JVM can run. That is the vector API one when running from the multi-release jar on a
+     * JVM with the jdk.incubator.vector module added, and the scalar one otherwise.
+     */
+    static BatchKernel best() {
+        try {
+            final Class<?> vectorKernel = Class.forName("fun.VectorBatchKernel");
+            return (BatchKernel) vectorKernel.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarBatchKernel();
+        }
+    }
+}
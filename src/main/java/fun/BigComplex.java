@@ -0,0 +1,31 @@
+package fun;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * A complex number held to arbitrary precision, for centres of views too deep for a double to tell pixels apart.
+ */
+public final class BigComplex {
+    public final BigDecimal real;
+    public final BigDecimal imaginary;
+
+    public BigComplex(BigDecimal real, BigDecimal imaginary) {
+        this.real = real;
+        this.imaginary = imaginary;
+    }
+
+    public static BigComplex of(Complex c) {
+        return new BigComplex(new BigDecimal(c.real), new BigDecimal(c.imaginary));
+    }
+
+    public BigComplex plus(double dReal, double dImaginary, MathContext mc) {
+        return new BigComplex(
+                real.add(new BigDecimal(dReal), mc),
+                imaginary.add(new BigDecimal(dImaginary), mc));
+    }
+
+    public Complex toComplex() {
+        return new Complex(real.doubleValue(), imaginary.doubleValue());
+    }
+}
@@ -0,0 +1,30 @@
+package fun;
+
+/**
+ * The Burning Ship: (|x| + |y| i)^2 + c, from z = c.
+ */
+public final class BurningShipKernel implements FractalKernel {
+
+    @Override
+    public void iterate(double[] cx, double[] cy, int count, int bailout, int[] iterations, double[] modulusSquared) {
+        for (int i = 0; i < count; i++) {
+            final double ax = cx[i], ay = cy[i];
+            double zx = ax, zy = ay, zxSquared = zx * zx, zySquared = zy * zy;
+            int n = 0;
+            while (n < bailout && zxSquared + zySquared < 4.0) {
+                zy = 2 * Math.abs(zx * zy) + ay;
+                zx = zxSquared - zySquared + ax;
+                n++;
+                zxSquared = zx * zx;
+                zySquared = zy * zy;
+            }
+            iterations[i] = n;
+            modulusSquared[i] = zxSquared + zySquared;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "burning-ship";
+    }
+}
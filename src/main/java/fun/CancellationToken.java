@@ -0,0 +1,32 @@
+package fun;
+
+/**
+ * Flag shared by all the work of one render. Work that has been cancelled is dropped from the scheduler's queue, and
+ * long running work checks {@link #isCancelled()} now and then and gives up early.
+ *
+ * The token also stands for the render in the scheduler, as its {@link RenderJob}.
+ */
+public final class CancellationToken {
+    private final RenderJob job;
+    private volatile boolean cancelled = false;
+
+    public CancellationToken() {
+        this(new RenderJob("render", RenderJob.Priority.NORMAL));
+    }
+
+    public CancellationToken(RenderJob job) {
+        this.job = job;
+    }
+
+    public RenderJob getJob() {
+        return job;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
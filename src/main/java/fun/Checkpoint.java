@@ -0,0 +1,229 @@
+package fun;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The state of a long {@link RenderEngine} render kept in a memory-mapped file, so that it can carry on after the JVM
+ * is restarted instead of starting again. The file holds which tiles are finished, a byte each, and the iteration
+ * data of every finished tile.
+ *
+ * Tiles are the engine's own units of work: whole rows when computing every pixel, and Mariani-Silver blocks
+ * otherwise, so the file is for one mode only. As each tile finishes its iteration data and then its byte are
+ * written straight into the mapping, which is a copy of what was just computed, and the operating system has them
+ * from then on whatever happens to the JVM. {@link #force} also gets them onto the disk.
+ *
+ * The file starts with a header holding the mode, render parameters and size, followed by the tile bytes, then by
+ * each row's iteration counts and |z|^2 values laid out as in an {@link IterationFile}.
+ */
+public final class Checkpoint implements Closeable {
+    private static final int MAGIC = 0x4d434b50; // "MCKP"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4096;
+    private static final int BYTES_PER_PIXEL = Integer.BYTES + Double.BYTES;
+    private static final long MAX_MAPPING = 1 << 30;
+
+    public final RenderEngine.Mode mode;
+    public final RenderParameters parameters;
+    public final int width;
+    public final int height;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int columns;
+    private final int tiles;
+    private final FileChannel channel;
+    private final MappedByteBuffer done;
+    private final MappedByteBuffer[] data;
+    private final int rowsPerMapping;
+
+    private Checkpoint(FileChannel channel, RenderEngine.Mode mode, RenderParameters parameters, int width,
+                       int height) throws IOException {
+        this.channel = channel;
+        this.mode = mode;
+        this.parameters = parameters;
+        this.width = width;
+        this.height = height;
+        this.tileWidth = mode == RenderEngine.Mode.BRUTE_FORCE ? width : RenderEngine.BLOCK_SIZE;
+        this.tileHeight = mode == RenderEngine.Mode.BRUTE_FORCE ? 1 : RenderEngine.BLOCK_SIZE;
+        this.columns = (width + tileWidth - 1) / tileWidth;
+        this.tiles = columns * ((height + tileHeight - 1) / tileHeight);
+        this.done = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES, tiles);
+        final long rowBytes = (long) width * BYTES_PER_PIXEL;
+        this.rowsPerMapping = (int) Math.max(1, MAX_MAPPING / rowBytes);
+        this.data = new MappedByteBuffer[(height + rowsPerMapping - 1) / rowsPerMapping];
+        for (int i = 0; i < data.length; i++) {
+            final int rows = Math.min(rowsPerMapping, height - i * rowsPerMapping);
+            data[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    dataStart(tiles) + (long) i * rowsPerMapping * rowBytes, rows * rowBytes);
+        }
+    }
+
+    /**
+     * A new file for a render, with no tiles finished, replacing whatever was there.
+     */
+    public static Checkpoint create(Path path, RenderEngine.Mode mode, RenderParameters parameters, int width,
+                                    int height) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_BYTES);
+            final DataOutputStream header = new DataOutputStream(bytes);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeUTF(mode.name());
+            header.writeInt(width);
+            header.writeInt(height);
+            header.writeInt(parameters.bailout);
+            header.writeDouble(parameters.width);
+            header.writeUTF(parameters.preciseCenter.real.toString());
+            header.writeUTF(parameters.preciseCenter.imaginary.toString());
+            header.writeUTF(parameters.fractal.name());
+            if (bytes.size() > HEADER_BYTES) {
+                throw new IOException("centre is too precise to record");
+            }
+            channel.write(ByteBuffer.wrap(bytes.toByteArray()), 0);
+            final Checkpoint checkpoint = new Checkpoint(channel, mode, parameters, width, height);
+            // sized up front, sparsely where the file system allows
+            channel.write(ByteBuffer.allocate(1), checkpoint.dataStart(checkpoint.tiles)
+                    + (long) width * height * BYTES_PER_PIXEL - 1);
+            return checkpoint;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reopen a file made by {@link #create}, to carry on with the render it was for.
+     */
+    public static Checkpoint open(Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final DataInputStream header = new DataInputStream(Channels.newInputStream(channel.position(0)));
+            if (header.readInt() != MAGIC) {
+                throw new IOException(path + " is not a checkpoint");
+            }
+            if (header.readInt() != VERSION) {
+                throw new IOException(path + " is a checkpoint from another version, and can't be resumed");
+            }
+            final RenderEngine.Mode mode = RenderEngine.Mode.valueOf(header.readUTF());
+            final int width = header.readInt(), height = header.readInt(), bailout = header.readInt();
+            final double planeWidth = header.readDouble();
+            final BigDecimal real = new BigDecimal(header.readUTF());
+            final BigComplex centre = new BigComplex(real, new BigDecimal(header.readUTF()));
+            final FractalKernel fractal = FractalKernel.named(header.readUTF());
+            final Checkpoint checkpoint = new Checkpoint(channel, mode,
+                    new RenderParameters(centre, planeWidth, bailout, fractal), width, height);
+            if (channel.size() < checkpoint.dataStart(checkpoint.tiles) + (long) width * height * BYTES_PER_PIXEL) {
+                throw new IOException(path + " is truncated");
+            }
+            return checkpoint;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getTiles() {
+        return tiles;
+    }
+
+    public int getFinishedTiles() {
+        int finished = 0;
+        for (int i = 0; i < tiles; i++) {
+            finished += done.get(i);
+        }
+        return finished;
+    }
+
+    /**
+     * Whether the tile starting at this pixel is finished.
+     */
+    public boolean isFinished(int x, int y) {
+        return done.get(tile(x, y)) != 0;
+    }
+
+    /**
+     * Keep the rectangle of {@code source} at {@code (x, y)} as the tile starting at {@code (x, firstRow + y)}, and
+     * mark it finished. {@code source} holds the rows from {@code firstRow} on.
+     */
+    public void save(int firstRow, IterationBuffer source, int x, int y, int w, int h) {
+        transfer(firstRow, source, x, y, w, h, true);
+        done.put(tile(x, firstRow + y), (byte) 1);
+    }
+
+    /**
+     * Fill the rectangle of {@code target} at {@code (x, y)} from the finished tile starting at
+     * {@code (x, firstRow + y)}. {@code target} holds the rows from {@code firstRow} on.
+     */
+    public void restore(int firstRow, IterationBuffer target, int x, int y, int w, int h) {
+        transfer(firstRow, target, x, y, w, h, false);
+    }
+
+    private void transfer(int firstRow, IterationBuffer band, int x, int y, int w, int h, boolean write) {
+        if (band.width != width || x < 0 || x + w > width || firstRow + y < 0 || firstRow + y + h > height) {
+            throw new IllegalArgumentException(w + "x" + h + " at " + x + "," + (firstRow + y) + " doesn't fit "
+                    + width + "x" + height);
+        }
+        for (int row = y; row < y + h; row++) {
+            final int global = firstRow + row;
+            final long start = (long) (global % rowsPerMapping) * width * BYTES_PER_PIXEL;
+            final MappedByteBuffer mapped = data[global / rowsPerMapping];
+            final ByteBuffer iterations = slice(mapped, start + (long) x * Integer.BYTES, w * Integer.BYTES);
+            final ByteBuffer modulusSquared =
+                    slice(mapped, start + (long) width * Integer.BYTES + (long) x * Double.BYTES, w * Double.BYTES);
+            final int offset = row * width + x;
+            if (write) {
+                iterations.asIntBuffer().put(band.iterations, offset, w);
+                modulusSquared.asDoubleBuffer().put(band.modulusSquared, offset, w);
+            } else {
+                iterations.asIntBuffer().get(band.iterations, offset, w);
+                modulusSquared.asDoubleBuffer().get(band.modulusSquared, offset, w);
+            }
+        }
+    }
+
+    /**
+     * Get everything saved so far onto the disk, tile data before the bytes that say it's there.
+     */
+    public void force() {
+        for (MappedByteBuffer mapped : data) {
+            mapped.force();
+        }
+        done.force();
+    }
+
+    private int tile(int x, int y) {
+        return (y / tileHeight) * columns + x / tileWidth;
+    }
+
+    private long dataStart(int tiles) {
+        // tile data starts on a page boundary
+        return HEADER_BYTES + (tiles + 4095L) / 4096 * 4096;
+    }
+
+    private static ByteBuffer slice(MappedByteBuffer mapped, long offset, int length) {
+        // through Buffer, whose position and limit return the same type on every Java version
+        final Buffer buffer = mapped.duplicate();
+        buffer.position((int) offset);
+        buffer.limit((int) offset + length);
+        return ((ByteBuffer) buffer).slice();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
@@ -0,0 +1,44 @@
+package fun;
+
+import static java.lang.Math.log;
+
+/**
+ * Smooth colouring of iteration results, as packed 0xAARRGGBB ints.
+ *
+ * Colouring is split in two: {@link #smooth} turns an iteration count and final |z|^2 into a fractional iteration
+ * count, which is the expensive part, and a {@link ColourMap} such as a {@link Palette} turns that into a colour with a
+ * table lookup. Keeping the smooth counts in a {@link SmoothBuffer} lets an image be recoloured without any of the
+ * logarithms, let alone any iterating.
+ */
+public final class Coloring {
+    public static final int BLACK = 0xFF000000;
+    private static final double LOG_2 = log(2);
+
+    private Coloring() {
+    }
+
+    public static int argb(IterationResult result, int bailout) {
+        return argb(result.iterations, result.xSquared + result.ySquared, bailout);
+    }
+
+    /**
+     * The {@link Palette#CLASSIC classic} colour for a point.
+     */
+    public static int argb(int iterations, double modulusSquared, int bailout) {
+        return Palette.CLASSIC.argb(smooth(iterations, modulusSquared, bailout));
+    }
+
+    /**
+     * The iteration count, plus how far past the escape radius the point had got, as a fraction of an iteration, so
+     * that colours blend continuously instead of banding. Negative for points inside the set.
+     */
+    public static float smooth(int iterations, double modulusSquared, int bailout) {
+        if (iterations >= bailout) {
+            return -1;
+        }
+        // log2(log2 |z|), with log2 |z| = log |z|^2 / (2 log 2)
+        final double nu = log(log(modulusSquared) / (2 * LOG_2)) / LOG_2;
+        final double smooth = iterations + 1 - nu;
+        return smooth > 0 ? (float) smooth : 0;
+    }
+}
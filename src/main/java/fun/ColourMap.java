@@ -0,0 +1,13 @@
+package fun;
+
+/**
+ * Turns smooth iteration counts, as made by {@link Coloring#smooth}, into packed 0xAARRGGBB colours.
+ */
+@FunctionalInterface
+public interface ColourMap {
+
+    /**
+     * @param smooth a smooth iteration count, or a negative number for points inside the set
+     */
+    int argb(float smooth);
+}
@@ -0,0 +1,87 @@
+package fun;
+
+import java.math.BigDecimal;
+
+/**
+ * A mutable double-double number: an unevaluated sum hi + lo of two doubles, worth about 106 bits of mantissa. The
+ * operations write into {@code this} so that an inner loop can reuse a handful of them without allocating.
+ */
+final class DoubleDouble {
+    private static final double SPLITTER = 134217729.0; // 2^27 + 1
+
+    double hi;
+    double lo;
+
+    DoubleDouble set(double hi, double lo) {
+        this.hi = hi;
+        this.lo = lo;
+        return this;
+    }
+
+    DoubleDouble set(DoubleDouble a) {
+        return set(a.hi, a.lo);
+    }
+
+    DoubleDouble set(BigDecimal value) {
+        final double high = value.doubleValue();
+        return set(high, value.subtract(new BigDecimal(high)).doubleValue());
+    }
+
+    /**
+     * this = a + b
+     */
+    DoubleDouble add(DoubleDouble a, DoubleDouble b) {
+        final double s = a.hi + b.hi;
+        final double bb = s - a.hi;
+        final double e = (a.hi - (s - bb)) + (b.hi - bb) + a.lo + b.lo;
+        return normalise(s, e);
+    }
+
+    /**
+     * this = a + b
+     */
+    DoubleDouble add(DoubleDouble a, double b) {
+        final double s = a.hi + b;
+        final double bb = s - a.hi;
+        final double e = (a.hi - (s - bb)) + (b - bb) + a.lo;
+        return normalise(s, e);
+    }
+
+    /**
+     * this = a - b
+     */
+    DoubleDouble subtract(DoubleDouble a, DoubleDouble b) {
+        final double s = a.hi - b.hi;
+        final double bb = s - a.hi;
+        final double e = (a.hi - (s - bb)) - (b.hi + bb) + a.lo - b.lo;
+        return normalise(s, e);
+    }
+
+    /**
+     * this = a * b
+     */
+    DoubleDouble multiply(DoubleDouble a, DoubleDouble b) {
+        final double p = a.hi * b.hi;
+        double t = SPLITTER * a.hi;
+        final double ah = t - (t - a.hi), al = a.hi - ah;
+        t = SPLITTER * b.hi;
+        final double bh = t - (t - b.hi), bl = b.hi - bh;
+        final double e = ((ah * bh - p) + ah * bl + al * bh) + al * bl + (a.hi * b.lo + a.lo * b.hi);
+        return normalise(p, e);
+    }
+
+    /**
+     * this = 2 * this, which is exact.
+     */
+    DoubleDouble twice() {
+        hi *= 2;
+        lo *= 2;
+        return this;
+    }
+
+    private DoubleDouble normalise(double s, double e) {
+        hi = s + e;
+        lo = e - (hi - s);
+        return this;
+    }
+}
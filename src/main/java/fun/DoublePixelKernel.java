@@ -0,0 +1,44 @@
+package fun;
+
+/**
+ * Pixel coordinates turned into plain double plane coordinates and handed to a batch kernel. Good until the pixel
+ * spacing gets down near the precision of a double. Points can be resumed at a higher bailout.
+ */
+public final class DoublePixelKernel implements ResumablePixelKernel {
+    private final Viewport viewport;
+    private final BatchKernel kernel;
+    private final int bailout;
+
+    public DoublePixelKernel(Viewport viewport, BatchKernel kernel, int bailout) {
+        this.viewport = viewport;
+        this.kernel = kernel;
+        this.bailout = bailout;
+    }
+
+    @Override
+    public void iterate(int x, int y, int stepX, int stepY, int count, int[] iterations, double[] modulusSquared) {
+        final double[] cx = new double[count];
+        final double[] cy = new double[count];
+        for (int i = 0; i < count; i++) {
+            cx[i] = viewport.real(x + i * stepX);
+            cy[i] = viewport.imaginary(y + i * stepY);
+        }
+        kernel.iterate(cx, cy, count, bailout, iterations, modulusSquared);
+    }
+
+    @Override
+    public void resume(int x, int y, int stepX, int stepY, int count, int[] iterations, double[] zx, double[] zy,
+                       double[] modulusSquared) {
+        final double[] cx = new double[count];
+        final double[] cy = new double[count];
+        for (int i = 0; i < count; i++) {
+            cx[i] = viewport.real(x + i * stepX);
+            cy[i] = viewport.imaginary(y + i * stepY);
+            if (iterations[i] == 0) {
+                zx[i] = cx[i];
+                zy[i] = cy[i];
+            }
+        }
+        kernel.resume(cx, cy, count, bailout, iterations, zx, zy, modulusSquared);
+    }
+}
@@ -0,0 +1,206 @@
+package fun;
+
+/**
+ * A whole zoom into one point, rendered once as an exponential map: a strip of samples on rings around the centre,
+ * a fixed number per ring, with each ring smaller than the one before by the same factor. Every frame of the zoom
+ * is then a resampling of part of the strip, which takes a table lookup per pixel instead of iterating it, and the
+ * strip costs about as much as the first few dozen frames would have. Samples get denser towards the centre of each
+ * frame, so the innermost disc of a few pixels is iterated directly for each frame instead.
+ *
+ * In the strip, ring k has radius {@code outerRadius * e^(-k * step)} and sample j is at angle {@code j * step},
+ * with step the angle between samples, so that samples are as far apart along a ring as between rings, and about a
+ * pixel apart at the corners of a frame. Rings are computed and kept in bands, which can be dropped once no frame
+ * still to come needs them, so memory stays the same however deep the zoom goes.
+ *
+ * Points are computed in doubles, so this only suits zooms that stay within the float and double tiers.
+ */
+public final class ExponentialMap {
+    /**
+     * Rings per band.
+     */
+    public static final int BAND_RINGS = 64;
+    /**
+     * Radius in pixels of the disc at the centre of each frame that's iterated directly.
+     */
+    private static final int INNER_RADIUS = 16;
+
+    private final Complex centre;
+    private final int width;
+    private final int height;
+    private final int bailout;
+    private final FractalKernel kernel;
+    private final ColourMap colours;
+    private final double halfDiagonal;
+    private final int samples;
+    private final double step;
+    private final double outerRadius;
+    private final int rings;
+    private final double[] cos;
+    private final double[] sin;
+    private final int[][] bands;
+    // for each pixel of a frame, how many rings in from the frame's outermost one it is, and its angle in samples
+    private final float[] ringOffset;
+    private final float[] angle;
+    private final int[] inner;
+
+    /**
+     * @param widestDelta    pixel size of the frame furthest out
+     * @param narrowestDelta pixel size of the frame furthest in
+     */
+    public ExponentialMap(Complex centre, int width, int height, double widestDelta, double narrowestDelta,
+                          int bailout, FractalKernel kernel, ColourMap colours) {
+        this.centre = centre;
+        this.width = width;
+        this.height = height;
+        this.bailout = bailout;
+        this.kernel = kernel;
+        this.colours = colours;
+        this.halfDiagonal = Math.hypot(width / 2.0, height / 2.0) + 1;
+        this.samples = Math.max(64, (int) Math.ceil(2 * Math.PI * halfDiagonal));
+        this.step = 2 * Math.PI / samples;
+        this.outerRadius = halfDiagonal * widestDelta * Math.exp(step);
+        this.rings = (int) Math.ceil(Math.log(outerRadius / (INNER_RADIUS * narrowestDelta)) / step) + 2;
+        this.cos = new double[samples];
+        this.sin = new double[samples];
+        for (int j = 0; j < samples; j++) {
+            cos[j] = Math.cos(j * step);
+            sin[j] = Math.sin(j * step);
+        }
+        this.bands = new int[(rings + BAND_RINGS - 1) / BAND_RINGS][];
+
+        this.ringOffset = new float[width * height];
+        this.angle = new float[width * height];
+        int innerPixels = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final double dx = x - width / 2.0, dy = y - height / 2.0;
+                final double radius = Math.hypot(dx, dy);
+                final int i = y * width + x;
+                if (radius < INNER_RADIUS) {
+                    ringOffset[i] = Float.NaN;
+                    innerPixels++;
+                    continue;
+                }
+                ringOffset[i] = (float) (-Math.log(radius) / step);
+                final double a = Math.atan2(dy, dx) / step;
+                angle[i] = (float) (a < 0 ? a + samples : a);
+            }
+        }
+        this.inner = new int[innerPixels];
+        for (int i = 0, n = 0; i < ringOffset.length; i++) {
+            if (Float.isNaN(ringOffset[i])) {
+                inner[n++] = i;
+            }
+        }
+    }
+
+    public int getBands() {
+        return bands.length;
+    }
+
+    /**
+     * Points in the whole strip.
+     */
+    public long getPoints() {
+        return (long) rings * samples;
+    }
+
+    /**
+     * The first band a frame with this pixel size reads.
+     */
+    public int firstBand(double delta) {
+        return Math.max(0, Math.min(bands.length - 1, (int) Math.floor(ring(delta, halfDiagonal)) / BAND_RINGS));
+    }
+
+    /**
+     * The last band a frame with this pixel size reads.
+     */
+    public int lastBand(double delta) {
+        return Math.max(0, Math.min(bands.length - 1, ((int) Math.ceil(ring(delta, INNER_RADIUS)) + 1) / BAND_RINGS));
+    }
+
+    /**
+     * Iterate and colour a band of rings.
+     */
+    public void computeBand(int band) {
+        final int first = band * BAND_RINGS, count = Math.min(BAND_RINGS, rings - first);
+        final int[] colour = new int[count * samples];
+        final double[] cx = new double[samples], cy = new double[samples];
+        final int[] iterations = new int[samples];
+        final double[] modulusSquared = new double[samples];
+        for (int k = 0; k < count; k++) {
+            final double radius = outerRadius * Math.exp(-(first + k) * step);
+            for (int j = 0; j < samples; j++) {
+                cx[j] = centre.real + radius * cos[j];
+                cy[j] = centre.imaginary + radius * sin[j];
+            }
+            kernel.iterate(cx, cy, samples, bailout, iterations, modulusSquared);
+            for (int j = 0; j < samples; j++) {
+                colour[k * samples + j] = colours.argb(Coloring.smooth(iterations[j], modulusSquared[j], bailout));
+            }
+        }
+        bands[band] = colour;
+    }
+
+    /**
+     * Let a band go once no frame still to come reads it.
+     */
+    public void release(int band) {
+        bands[band] = null;
+    }
+
+    /**
+     * Paint the frame with pixel size {@code delta} into {@code pixels}, from the bands it reads, which must have
+     * been computed, and the disc at its centre, which is iterated now.
+     */
+    public void frame(double delta, PixelBuffer pixels) {
+        final double outermost = Math.log(outerRadius / delta) / step;
+        final int[] argb = pixels.pixels;
+        for (int i = 0; i < argb.length; i++) {
+            if (!Float.isNaN(ringOffset[i])) {
+                argb[i] = sample(outermost + ringOffset[i], angle[i]);
+            }
+        }
+        final double[] cx = new double[inner.length], cy = new double[inner.length];
+        for (int n = 0; n < inner.length; n++) {
+            cx[n] = centre.real + (inner[n] % width - width / 2.0) * delta;
+            cy[n] = centre.imaginary + (inner[n] / width - height / 2.0) * delta;
+        }
+        final int[] iterations = new int[inner.length];
+        final double[] modulusSquared = new double[inner.length];
+        kernel.iterate(cx, cy, inner.length, bailout, iterations, modulusSquared);
+        for (int n = 0; n < inner.length; n++) {
+            argb[inner[n]] = colours.argb(Coloring.smooth(iterations[n], modulusSquared[n], bailout));
+        }
+    }
+
+    /**
+     * Blend the four samples around a fractional ring and angle.
+     */
+    private int sample(double ring, double angle) {
+        final int k = Math.max(0, Math.min(rings - 2, (int) ring));
+        final int j = (int) angle % samples;
+        final double fk = Math.max(0, Math.min(1, ring - k)), fj = angle - (int) angle;
+        final int j1 = j + 1 == samples ? 0 : j + 1;
+        final int a = colourAt(k, j), b = colourAt(k, j1), c = colourAt(k + 1, j), d = colourAt(k + 1, j1);
+        return Coloring.BLACK | blend(a, b, c, d, fj, fk, 16) | blend(a, b, c, d, fj, fk, 8)
+                | blend(a, b, c, d, fj, fk, 0);
+    }
+
+    private int colourAt(int ring, int sample) {
+        return bands[ring / BAND_RINGS][(ring % BAND_RINGS) * samples + sample];
+    }
+
+    private static int blend(int a, int b, int c, int d, double fj, double fk, int shift) {
+        final double top = ((a >> shift) & 0xff) * (1 - fj) + ((b >> shift) & 0xff) * fj;
+        final double bottom = ((c >> shift) & 0xff) * (1 - fj) + ((d >> shift) & 0xff) * fj;
+        return (int) (top * (1 - fk) + bottom * fk + 0.5) << shift;
+    }
+
+    /**
+     * Fractional ring a point {@code radius} pixels from the centre of a frame with pixel size {@code delta} lands on.
+     */
+    private double ring(double delta, double radius) {
+        return Math.log(outerRadius / (radius * delta)) / step;
+    }
+}
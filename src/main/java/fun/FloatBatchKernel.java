@@ -0,0 +1,24 @@
+package fun;
+
+/**
+ * Single precision counterpart of {@link BatchKernel}. Only good for shallow views, but twice as many points fit in
+ * a vector register.
+ */
+public interface FloatBatchKernel {
+
+    void iterate(float[] cx, float[] cy, int count, int bailout, int[] iterations, double[] modulusSquared);
+
+    String name();
+
+    /**
+     * As {@link BatchKernel#best()}, the vector API kernel where it can be loaded and the scalar one otherwise.
+     */
+    static FloatBatchKernel best() {
+        try {
+            final Class<?> vectorKernel = Class.forName("fun.VectorFloatBatchKernel");
+            return (FloatBatchKernel) vectorKernel.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarFloatBatchKernel();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package fun;
+
+/**
+ * Pixel coordinates rounded to floats and handed to a single precision batch kernel.
+ */
+public final class FloatPixelKernel implements PixelKernel {
+    private final Viewport viewport;
+    private final FloatBatchKernel kernel;
+    private final int bailout;
+
+    public FloatPixelKernel(Viewport viewport, FloatBatchKernel kernel, int bailout) {
+        this.viewport = viewport;
+        this.kernel = kernel;
+        this.bailout = bailout;
+    }
+
+    @Override
+    public void iterate(int x, int y, int stepX, int stepY, int count, int[] iterations, double[] modulusSquared) {
+        final float[] cx = new float[count];
+        final float[] cy = new float[count];
+        for (int i = 0; i < count; i++) {
+            cx[i] = (float) viewport.real(x + i * stepX);
+            cy[i] = (float) viewport.imaginary(y + i * stepY);
+        }
+        kernel.iterate(cx, cy, count, bailout, iterations, modulusSquared);
+    }
+}
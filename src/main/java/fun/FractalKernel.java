@@ -0,0 +1,58 @@
+package fun;
+
+/**
+ * One escape-time fractal: the formula iterated for each point, and a loop applying it to a whole batch of points.
+ * Every implementation has a loop of its own with its formula written into it, so the JIT sees one small monomorphic
+ * loop per fractal, and the only virtual call is the one per batch rather than one per iteration.
+ *
+ * Like a {@link BatchKernel}, a kernel leaves each point's iteration count and its squared modulus when it stopped,
+ * stopping once |z| reaches 2 or the count reaches the bailout.
+ *
+ * Only the Mandelbrot set has the float, double-double and perturbation arithmetic of the other
+ * {@link PrecisionTier}s, so every other fractal is rendered in doubles, whatever the zoom.
+ */
+public interface FractalKernel {
+    FractalKernel MANDELBROT = new MandelbrotKernel(BatchKernel.best());
+
+    void iterate(double[] cx, double[] cy, int count, int bailout, int[] iterations, double[] modulusSquared);
+
+    /**
+     * What this fractal is called, with its parameters, such that {@link #named} makes it again.
+     */
+    String name();
+
+    /**
+     * Whether this is the Mandelbrot set itself, z^2 + c from z = c, which every tier can render.
+     */
+    default boolean isMandelbrot() {
+        return false;
+    }
+
+    /**
+     * A fractal from its {@link #name}: "mandelbrot", "julia:RE,IM" for the Julia set of c = RE + IM i,
+     * "multibrot:N" for z^N + c, or "burning-ship".
+     */
+    static FractalKernel named(String name) {
+        final String[] parts = name.trim().toLowerCase().split(":", 2);
+        switch (parts[0]) {
+            case "mandelbrot":
+                return MANDELBROT;
+            case "julia": {
+                final String[] c = parts.length > 1 ? parts[1].split(",") : new String[0];
+                if (c.length != 2) {
+                    throw new IllegalArgumentException("julia needs a constant, as julia:RE,IM");
+                }
+                return new JuliaKernel(Double.parseDouble(c[0].trim()), Double.parseDouble(c[1].trim()));
+            }
+            case "multibrot":
+                if (parts.length < 2) {
+                    throw new IllegalArgumentException("multibrot needs a power, as multibrot:N");
+                }
+                return new MultibrotKernel(Integer.parseInt(parts[1].trim()));
+            case "burning-ship":
+                return new BurningShipKernel();
+            default:
+                throw new IllegalArgumentException("no fractal called " + name);
+        }
+    }
+}
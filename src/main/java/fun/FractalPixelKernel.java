@@ -0,0 +1,28 @@
+package fun;
+
+/**
+ * Pixel coordinates turned into plain double plane coordinates and handed to a {@link FractalKernel}, for fractals
+ * other than the Mandelbrot set, which only have double arithmetic.
+ */
+public final class FractalPixelKernel implements PixelKernel {
+    private final Viewport viewport;
+    private final FractalKernel fractal;
+    private final int bailout;
+
+    public FractalPixelKernel(Viewport viewport, FractalKernel fractal, int bailout) {
+        this.viewport = viewport;
+        this.fractal = fractal;
+        this.bailout = bailout;
+    }
+
+    @Override
+    public void iterate(int x, int y, int stepX, int stepY, int count, int[] iterations, double[] modulusSquared) {
+        final double[] cx = new double[count];
+        final double[] cy = new double[count];
+        for (int i = 0; i < count; i++) {
+            cx[i] = viewport.real(x + i * stepX);
+            cy[i] = viewport.imaginary(y + i * stepY);
+        }
+        fractal.iterate(cx, cy, count, bailout, iterations, modulusSquared);
+    }
+}
@@ -1,65 +1,130 @@
 package fun;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntUnaryOperator;
 
+/**
+ * Counts of points per iteration value, for values from 0 up to (but not including) a fixed size.
+ *
+ * Counters are striped by thread so that calculator threads mostly bump their own slots instead of fighting over
+ * shared ones. Reads merge the stripes, so they cost a linear pass and are meant to happen far less often than writes.
+ */
 public class Histogram {
-    private final Map<Integer, Integer> dataPoints = new ConcurrentHashMap<>();
-    private int minPoint = Integer.MAX_VALUE;
-    private int maxPoint = Integer.MIN_VALUE;
-    private int maxValue = Integer.MIN_VALUE;
-    private int maxPosition = -1;
-    private long totalBumps = 0;
-
-    public Histogram bucketed(Function<Integer,Integer> bucketing) {
-        Histogram b = new Histogram();
-        dataPoints.forEach((k,v) ->{
-            int bk = bucketing.apply(k);
-            b.incrementBy(bk, v);
-        });
-        return b;
+    private static final int PADDING = 16; // longs, keeps neighbouring stripes off each other's cache lines
+
+    private final int size;
+    private final int stripeMask;
+    private final int stripeLength;
+    private final AtomicLongArray counts;
+    private final AtomicInteger minPoint = new AtomicInteger(Integer.MAX_VALUE);
+    private final AtomicInteger maxPoint = new AtomicInteger(Integer.MIN_VALUE);
+    private final LongAdder totalBumps = new LongAdder();
+
+    public Histogram(int size) {
+        this(size, Runtime.getRuntime().availableProcessors());
     }
 
-    public int increment(int point) {
-        return incrementBy(point, 1);
+    public Histogram(int size, int concurrency) {
+        this.size = size;
+        final int stripes = Integer.highestOneBit(Math.max(1, concurrency - 1)) << 1;
+        this.stripeMask = concurrency <= 1 ? 0 : stripes - 1;
+        this.stripeLength = size + PADDING;
+        this.counts = new AtomicLongArray((stripeMask + 1) * stripeLength);
     }
 
-    private int incrementBy(int point, int amount) {
-        final Integer value = dataPoints.get(point);
-        final int newValue = (value != null) ? (value + amount) : amount;
-        dataPoints.put(point, newValue);
-        if (point < minPoint) {
-            minPoint = point;
+    /**
+     * A new, single threaded histogram of {@code buckets} values, where each point of this one is moved to the
+     * bucket picked by {@code bucketing}. Buckets outside the range are clamped to the first or last one.
+     */
+    public Histogram bucketed(int buckets, IntUnaryOperator bucketing) {
+        final Histogram b = new Histogram(buckets, 1);
+        final int last = Math.min(maxPoint.get(), size - 1);
+        for (int point = Math.max(0, minPoint.get()); point <= last; point++) {
+            final long value = valueAt(point);
+            if (value != 0) {
+                final int bucket = bucketing.applyAsInt(point);
+                b.incrementBy(Math.max(0, Math.min(buckets - 1, bucket)), value);
+            }
         }
-        if (point > maxPoint) {
-            maxPoint = point;
+        return b;
+    }
+
+    public void increment(int point) {
+        incrementBy(point, 1);
+    }
+
+    private void incrementBy(int point, long amount) {
+        final int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        counts.addAndGet(stripe * stripeLength + point, amount);
+        if (point < minPoint.get()) {
+            minPoint.accumulateAndGet(point, Math::min);
         }
-        if (newValue > maxValue) {
-            maxValue = newValue;
-            maxPosition = point;
+        if (point > maxPoint.get()) {
+            maxPoint.accumulateAndGet(point, Math::max);
         }
-        totalBumps+=amount;
-        return newValue;
+        totalBumps.add(amount);
+    }
+
+    public int size() {
+        return size;
     }
 
     public int min() {
-        return minPoint;
+        return minPoint.get();
     }
+
     public int max() {
-        return maxPoint;
+        return maxPoint.get();
     }
-    public int height() {
-        return maxValue;
+
+    public long height() {
+        long height = 0;
+        for (int point = 0; point < size; point++) {
+            height = Math.max(height, valueAt(point));
+        }
+        return height;
     }
+
     public int peakPosition() {
-        return maxPosition;
+        long height = 0;
+        int position = -1;
+        for (int point = 0; point < size; point++) {
+            final long value = valueAt(point);
+            if (value > height) {
+                height = value;
+                position = point;
+            }
+        }
+        return position;
     }
+
     public long bumps() {
-        return totalBumps;
+        return totalBumps.sum();
     }
 
-    public int valueAt(int x) {
-        return dataPoints.getOrDefault(x, 0);
+    public long valueAt(int x) {
+        if (x < 0 || x >= size) {
+            return 0;
+        }
+        long value = 0;
+        for (int offset = x; offset < counts.length(); offset += stripeLength) {
+            value += counts.get(offset);
+        }
+        return value;
+    }
+
+    /**
+     * All the merged counts, indexed by point.
+     */
+    public long[] counts() {
+        final long[] merged = new long[size];
+        for (int offset = 0; offset < counts.length(); offset += stripeLength) {
+            for (int point = 0; point < size; point++) {
+                merged[point] += counts.get(offset + point);
+            }
+        }
+        return merged;
     }
 }
@@ -0,0 +1,110 @@
+package fun;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Batch kernel that avoids running points inside the set all the way to the bailout.
+ *
+ * Points in the main cardioid or the period 2 bulb are recognised analytically, without iterating at all. The rest
+ * are iterated with Brent style cycle detection: z is saved at power of two steps, and if the orbit ever lands
+ * exactly on the saved value again it is periodic and can never escape. Since the comparison is exact, the iteration
+ * counts are the same as the plain kernel's. The only difference is the |z|^2 reported for points inside the set,
+ * which is the one at the time they were recognised rather than after {@code bailout} iterations. That value is
+ * still below 4, and colouring treats it as black either way.
+ */
+public final class InteriorCheckingKernel implements BatchKernel {
+    private final LongAdder cardioidPoints = new LongAdder();
+    private final LongAdder bulbPoints = new LongAdder();
+    private final LongAdder periodicPoints = new LongAdder();
+    private final LongAdder iterationsSkipped = new LongAdder();
+
+    @Override
+    public void iterate(double[] cx, double[] cy, int count, int bailout, int[] iterations, double[] modulusSquared) {
+        long cardioid = 0, bulb = 0, periodic = 0, skipped = 0;
+        for (int i = 0; i < count; i++) {
+            final double ax = cx[i], ay = cy[i];
+            if (inMainCardioid(ax, ay)) {
+                cardioid++;
+                skipped += bailout;
+                iterations[i] = bailout;
+                modulusSquared[i] = ax * ax + ay * ay;
+                continue;
+            }
+            if (inPeriod2Bulb(ax, ay)) {
+                bulb++;
+                skipped += bailout;
+                iterations[i] = bailout;
+                modulusSquared[i] = ax * ax + ay * ay;
+                continue;
+            }
+            double zx = ax, zy = ay, zxSquared = zx * zx, zySquared = zy * zy;
+            double savedX = zx, savedY = zy;
+            int power = 1, steps = 0;
+            int n = 0;
+            while (n < bailout && (zxSquared + zySquared) < 4.0) {
+                zy = 2 * zx * zy + ay;
+                zx = zxSquared - zySquared + ax;
+                n++;
+                zxSquared = zx * zx;
+                zySquared = zy * zy;
+                if (zx == savedX && zy == savedY) {
+                    periodic++;
+                    skipped += bailout - n;
+                    n = bailout;
+                    break;
+                }
+                if (++steps == power) {
+                    savedX = zx;
+                    savedY = zy;
+                    power <<= 1;
+                    steps = 0;
+                }
+            }
+            iterations[i] = n;
+            modulusSquared[i] = zxSquared + zySquared;
+        }
+        cardioidPoints.add(cardioid);
+        bulbPoints.add(bulb);
+        periodicPoints.add(periodic);
+        iterationsSkipped.add(skipped);
+    }
+
+    static boolean inMainCardioid(double x, double y) {
+        final double xq = x - 0.25;
+        final double ySquared = y * y;
+        final double q = xq * xq + ySquared;
+        return q * (q + xq) <= 0.25 * ySquared;
+    }
+
+    static boolean inPeriod2Bulb(double x, double y) {
+        final double xp = x + 1;
+        return xp * xp + y * y <= 0.0625;
+    }
+
+    @Override
+    public String name() {
+        return "interior-checking";
+    }
+
+    public long getCardioidPoints() {
+        return cardioidPoints.sum();
+    }
+
+    public long getBulbPoints() {
+        return bulbPoints.sum();
+    }
+
+    public long getPeriodicPoints() {
+        return periodicPoints.sum();
+    }
+
+    public long getIterationsSkipped() {
+        return iterationsSkipped.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cardioid %d, bulb %d, periodic %d points; %d iterations skipped",
+                getCardioidPoints(), getBulbPoints(), getPeriodicPoints(), getIterationsSkipped());
+    }
+}
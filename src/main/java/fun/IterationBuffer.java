@@ -0,0 +1,81 @@
+package fun;
+
+/**
+ * Raw iteration results for every pixel of an image: the iteration count and the final |z|^2, row by row.
+ */
+public final class IterationBuffer {
+    public final int width;
+    public final int height;
+    public final int bailout;
+    public final int[] iterations;
+    public final double[] modulusSquared;
+
+    public IterationBuffer(int width, int height, int bailout) {
+        this.width = width;
+        this.height = height;
+        this.bailout = bailout;
+        this.iterations = new int[width * height];
+        this.modulusSquared = new double[width * height];
+    }
+
+    public int iterationsAt(int x, int y) {
+        return iterations[y * width + x];
+    }
+
+    /**
+     * Colour a rectangle of this buffer into the same place in {@code pixels}.
+     */
+    public void colour(int x, int y, int w, int h, PixelBuffer pixels) {
+        final int right = Math.min(x + w, width);
+        final int bottom = Math.min(y + h, height);
+        for (int row = y; row < bottom; row++) {
+            for (int i = row * width + x, end = row * width + right; i < end; i++) {
+                pixels.pixels[i] = Coloring.argb(iterations[i], modulusSquared[i], bailout);
+            }
+        }
+    }
+
+    /**
+     * How many pixels there are at each iteration count, from 0 up to the bailout.
+     */
+    public Histogram histogram() {
+        final Histogram histogram = new Histogram(bailout + 1, 1);
+        for (int i = 0; i < iterations.length; i++) {
+            if (iterations[i] >= 0) {
+                histogram.increment(Math.min(iterations[i], bailout));
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * The sum of the iteration counts over a rectangle of this buffer.
+     */
+    public long totalIterations(int x, int y, int w, int h) {
+        final int right = Math.min(x + w, width);
+        final int bottom = Math.min(y + h, height);
+        long total = 0;
+        for (int row = y; row < bottom; row++) {
+            for (int i = row * width + x, end = row * width + right; i < end; i++) {
+                total += iterations[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * The number of pixels whose iteration count differs from the same pixel in {@code other}.
+     */
+    public long mismatches(IterationBuffer other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("buffers differ in size");
+        }
+        long mismatches = 0;
+        for (int i = 0; i < iterations.length; i++) {
+            if (iterations[i] != other.iterations[i]) {
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+}
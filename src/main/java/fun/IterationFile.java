@@ -0,0 +1,154 @@
+package fun;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Iteration data for a whole view kept in a file rather than on the heap, for images too big for an
+ * {@link IterationBuffer}. Rows are read and written through short-lived memory mappings, so only what's being
+ * touched at the moment needs to be resident, and the operating system pages the rest in and out.
+ *
+ * The file starts with a header holding the render parameters and size, so it can be reopened later on its own,
+ * followed by each row's iteration counts and then its |z|^2 values, exactly as an {@link IterationBuffer} holds them.
+ */
+public final class IterationFile implements Closeable {
+    private static final int MAGIC = 0x4d495452; // "MITR"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4096;
+    private static final int BYTES_PER_PIXEL = Integer.BYTES + Double.BYTES;
+    private static final long MAX_MAPPING = 1 << 30;
+
+    public final RenderParameters parameters;
+    public final int width;
+    public final int height;
+    private final FileChannel channel;
+
+    private IterationFile(FileChannel channel, RenderParameters parameters, int width, int height) {
+        this.channel = channel;
+        this.parameters = parameters;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * A new file for a view, replacing whatever was there. Rows not yet written read back as zeros.
+     */
+    public static IterationFile create(Path path, RenderParameters parameters, int width, int height)
+            throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_BYTES);
+            final DataOutputStream header = new DataOutputStream(bytes);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(width);
+            header.writeInt(height);
+            header.writeInt(parameters.bailout);
+            header.writeDouble(parameters.width);
+            header.writeUTF(parameters.preciseCenter.real.toString());
+            header.writeUTF(parameters.preciseCenter.imaginary.toString());
+            if (bytes.size() > HEADER_BYTES) {
+                throw new IOException("centre is too precise to record");
+            }
+            channel.write(ByteBuffer.wrap(bytes.toByteArray()), 0);
+            // sized up front, sparsely where the file system allows
+            channel.write(ByteBuffer.allocate(1), HEADER_BYTES + (long) width * height * BYTES_PER_PIXEL - 1);
+            return new IterationFile(channel, parameters, width, height);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reopen a file made by {@link #create}, for reading and writing.
+     */
+    public static IterationFile open(Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final InputStream in = Channels.newInputStream(channel.position(0));
+            final DataInputStream header = new DataInputStream(in);
+            if (header.readInt() != MAGIC || header.readInt() != VERSION) {
+                throw new IOException(path + " is not an iteration file");
+            }
+            final int width = header.readInt(), height = header.readInt(), bailout = header.readInt();
+            final double planeWidth = header.readDouble();
+            final BigDecimal real = new BigDecimal(header.readUTF());
+            final BigComplex centre = new BigComplex(real, new BigDecimal(header.readUTF()));
+            if (channel.size() < HEADER_BYTES + (long) width * height * BYTES_PER_PIXEL) {
+                throw new IOException(path + " is truncated");
+            }
+            return new IterationFile(channel, new RenderParameters(centre, planeWidth, bailout), width, height);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Store {@code band} as the rows starting at {@code firstRow}.
+     */
+    public void write(int firstRow, IterationBuffer band) throws IOException {
+        transfer(firstRow, band, true);
+    }
+
+    /**
+     * Fill {@code band} from the rows starting at {@code firstRow}.
+     */
+    public void read(int firstRow, IterationBuffer band) throws IOException {
+        transfer(firstRow, band, false);
+    }
+
+    private void transfer(int firstRow, IterationBuffer band, boolean write) throws IOException {
+        if (band.width != width || firstRow < 0 || firstRow + band.height > height) {
+            throw new IllegalArgumentException(band.width + "x" + band.height + " band at row " + firstRow
+                    + " doesn't fit " + width + "x" + height);
+        }
+        final long rowBytes = (long) width * BYTES_PER_PIXEL;
+        final int rowsPerMapping = (int) Math.max(1, MAX_MAPPING / rowBytes);
+        for (int row = 0; row < band.height; row += rowsPerMapping) {
+            final int rows = Math.min(rowsPerMapping, band.height - row);
+            final MappedByteBuffer mapped = channel.map(write ? FileChannel.MapMode.READ_WRITE
+                    : FileChannel.MapMode.READ_ONLY, HEADER_BYTES + (firstRow + row) * rowBytes, rows * rowBytes);
+            for (int i = 0; i < rows; i++) {
+                final ByteBuffer iterations = slice(mapped, i * rowBytes, width * Integer.BYTES);
+                final ByteBuffer modulusSquared =
+                        slice(mapped, i * rowBytes + width * Integer.BYTES, width * Double.BYTES);
+                final int offset = (row + i) * width;
+                if (write) {
+                    iterations.asIntBuffer().put(band.iterations, offset, width);
+                    modulusSquared.asDoubleBuffer().put(band.modulusSquared, offset, width);
+                } else {
+                    iterations.asIntBuffer().get(band.iterations, offset, width);
+                    modulusSquared.asDoubleBuffer().get(band.modulusSquared, offset, width);
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer slice(MappedByteBuffer mapped, long offset, int length) {
+        // through Buffer, whose position and limit return the same type on every Java version
+        final Buffer buffer = mapped.duplicate();
+        buffer.position((int) offset);
+        buffer.limit((int) offset + length);
+        return ((ByteBuffer) buffer).slice();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,37 @@
+package fun;
+
+/**
+ * The filled Julia set of a fixed c: z^2 + c, starting from z at the point itself.
+ */
+public final class JuliaKernel implements FractalKernel {
+    private final double real;
+    private final double imaginary;
+
+    public JuliaKernel(double real, double imaginary) {
+        this.real = real;
+        this.imaginary = imaginary;
+    }
+
+    @Override
+    public void iterate(double[] cx, double[] cy, int count, int bailout, int[] iterations, double[] modulusSquared) {
+        final double ax = real, ay = imaginary;
+        for (int i = 0; i < count; i++) {
+            double zx = cx[i], zy = cy[i], zxSquared = zx * zx, zySquared = zy * zy;
+            int n = 0;
+            while (n < bailout && zxSquared + zySquared < 4.0) {
+                zy = 2 * zx * zy + ay;
+                zx = zxSquared - zySquared + ax;
+                n++;
+                zxSquared = zx * zx;
+                zySquared = zy * zy;
+            }
+            iterations[i] = n;
+            modulusSquared[i] = zxSquared + zySquared;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "julia:" + real + "," + imaginary;
+    }
+}
@@ -1,15 +1,77 @@
 package fun;
 
+import fun.cli.AnimateCommand;
+import fun.cli.CoordinateCommand;
+import fun.cli.GigapixelCommand;
+import fun.cli.JobsCommand;
+import fun.cli.KernelCommand;
+import fun.cli.LoadTestCommand;
+import fun.cli.Options;
+import fun.cli.RecolourCommand;
+import fun.cli.RenderCommand;
+import fun.cli.ResumeCommand;
+import fun.cli.ServeCommand;
+import fun.cli.WorkerCommand;
 import fun.gui.MandelbrotWindow;
 
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 
 public class Mandelbrot {
+    /**
+     * Everything other than the window, by the name that picks it as the first argument. None of them need a display.
+     */
+    private static final Map<String, Command> COMMANDS = new LinkedHashMap<>();
+
+    static {
+        COMMANDS.put("render", RenderCommand::main);
+        COMMANDS.put("gigapixel", GigapixelCommand::main);
+        COMMANDS.put("recolour", RecolourCommand::main);
+        COMMANDS.put("resume", ResumeCommand::main);
+        COMMANDS.put("animate", AnimateCommand::main);
+        COMMANDS.put("jobs", JobsCommand::main);
+        COMMANDS.put("kernels", KernelCommand::main);
+        COMMANDS.put("serve", ServeCommand::main);
+        COMMANDS.put("loadtest", LoadTestCommand::main);
+        COMMANDS.put("coordinate", CoordinateCommand::main);
+        COMMANDS.put("worker", WorkerCommand::main);
+    }
+
+    private interface Command {
+        void run(String[] args) throws Exception;
+    }
 
     public static void main(String[] args) throws Exception {
-        int width = Integer.parseInt(args[0]);
-        int height = Integer.parseInt(args[1]);
-        MandelbrotWindow window = new MandelbrotWindow(width, height);
-        window.setVisible(true);
+        final Command command = args.length > 0 ? COMMANDS.get(args[0]) : null;
+        if (command != null) {
+            System.setProperty("java.awt.headless", "true");
+            command.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        final Options options = new Options(args);
+        int width = options.positionalInt(0);
+        int height = options.positionalInt(1);
+        MandelbrotWindow.open(width, height, tileCache(options));
+    }
+
+    /**
+     * --cache-mb N keeps up to N megabytes of finished tiles in memory, 0 for none. --cache-file FILE adds a
+     * memory-mapped tier of up to --cache-file-mb megabytes behind it.
+     */
+    private static TileCache tileCache(Options options) {
+        final long megabyte = 1 << 20;
+        final int memory = options.getInt("cache-mb", 64);
+        if (memory <= 0) {
+            return null;
+        }
+        if (!options.has("cache-file")) {
+            return new TileCache(Rendering.TILE_SIZE, memory * megabyte);
+        }
+        return new TileCache(Rendering.TILE_SIZE, memory * megabyte,
+                Paths.get(options.get("cache-file", null)), options.getInt("cache-file-mb", 1024) * megabyte);
     }
 
 
@@ -0,0 +1,27 @@
+package fun;
+
+/**
+ * The Mandelbrot set, iterated by a {@link BatchKernel}, so that it gets the vector kernel where there is one.
+ */
+public final class MandelbrotKernel implements FractalKernel {
+    private final BatchKernel kernel;
+
+    public MandelbrotKernel(BatchKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    @Override
+    public void iterate(double[] cx, double[] cy, int count, int bailout, int[] iterations, double[] modulusSquared) {
+        kernel.iterate(cx, cy, count, bailout, iterations, modulusSquared);
+    }
+
+    @Override
+    public String name() {
+        return "mandelbrot";
+    }
+
+    @Override
+    public boolean isMandelbrot() {
+        return true;
+    }
+}
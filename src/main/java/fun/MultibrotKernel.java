@@ -0,0 +1,43 @@
+package fun;
+
+/**
+ * z^n + c for a whole power n of 2 or more, from z = c. Power 2 is the Mandelbrot set, the long way round.
+ */
+public final class MultibrotKernel implements FractalKernel {
+    private final int power;
+
+    public MultibrotKernel(int power) {
+        if (power < 2) {
+            throw new IllegalArgumentException("power must be at least 2, got " + power);
+        }
+        this.power = power;
+    }
+
+    @Override
+    public void iterate(double[] cx, double[] cy, int count, int bailout, int[] iterations, double[] modulusSquared) {
+        final int multiplies = power - 1;
+        for (int i = 0; i < count; i++) {
+            final double ax = cx[i], ay = cy[i];
+            double zx = ax, zy = ay;
+            int n = 0;
+            while (n < bailout && zx * zx + zy * zy < 4.0) {
+                double px = zx, py = zy;
+                for (int k = 0; k < multiplies; k++) {
+                    final double x = px * zx - py * zy;
+                    py = px * zy + py * zx;
+                    px = x;
+                }
+                zx = px + ax;
+                zy = py + ay;
+                n++;
+            }
+            iterations[i] = n;
+            modulusSquared[i] = zx * zx + zy * zy;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "multibrot:" + power;
+    }
+}
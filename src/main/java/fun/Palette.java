@@ -0,0 +1,133 @@
+package fun;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static java.lang.Math.abs;
+
+/**
+ * A cyclic colour scheme precomputed into a lookup table, so colouring a point is an index calculation and an array
+ * read. Points inside the set are black.
+ */
+public final class Palette implements ColourMap {
+    private static final int GRADIENT_ENTRIES = 1024;
+
+    /**
+     * The original sawtooth colouring, red cycling fastest and green slowest. Its table covers one whole period of
+     * all three, with one entry per iteration.
+     */
+    public static final Palette CLASSIC = classic();
+
+    private static final Map<String, Palette> NAMED = new LinkedHashMap<>();
+
+    static {
+        NAMED.put(CLASSIC.name, CLASSIC);
+        NAMED.put("ultra", gradient("ultra", 48, 0x000764, 0x206bcb, 0xedffff, 0xffaa00, 0x000200));
+        NAMED.put("fire", gradient("fire", 64, 0x200000, 0xa01000, 0xff7000, 0xffe060, 0xffffff, 0xff9000, 0x800000));
+        NAMED.put("grey", gradient("grey", 32, 0x101010, 0xf0f0f0));
+    }
+
+    public final String name;
+    private final int[] colours;
+    private final float entriesPerIteration;
+
+    private Palette(String name, int[] colours, float entriesPerIteration) {
+        this.name = name;
+        this.colours = colours;
+        this.entriesPerIteration = entriesPerIteration;
+    }
+
+    public static Palette named(String name) {
+        final Palette palette = NAMED.get(name.toLowerCase());
+        if (palette == null) {
+            throw new IllegalArgumentException("no palette " + name + ", try one of " + names());
+        }
+        return palette;
+    }
+
+    public static Set<String> names() {
+        return Collections.unmodifiableSet(NAMED.keySet());
+    }
+
+    @Override
+    public int argb(float smooth) {
+        if (smooth < 0) {
+            return Coloring.BLACK;
+        }
+        return colours[(int) (smooth * entriesPerIteration) % colours.length];
+    }
+
+    /**
+     * This palette spread once over the points of a render in proportion to how many there are at each iteration
+     * count, so that every colour covers about as much of the image however the counts are distributed.
+     *
+     * @param histogram counts of points by iteration, the last value being the bailout, whose points are inside
+     */
+    public ColourMap equalised(Histogram histogram) {
+        final long[] counts = histogram.counts();
+        final int escaped = counts.length - 1;
+        final float[] below = new float[escaped + 1]; // fraction of escaped points with fewer iterations
+        long total = 0;
+        for (int iterations = 0; iterations < escaped; iterations++) {
+            total += counts[iterations];
+            below[iterations + 1] = total;
+        }
+        if (total == 0) {
+            return this;
+        }
+        for (int i = 0; i < below.length; i++) {
+            below[i] /= total;
+        }
+        final int last = colours.length - 1;
+        return smooth -> {
+            if (smooth < 0) {
+                return Coloring.BLACK;
+            }
+            final int whole = Math.min((int) smooth, escaped - 1);
+            final float fraction = Math.min(smooth - whole, 1);
+            final float rank = below[whole] + (below[whole + 1] - below[whole]) * fraction;
+            return colours[(int) (rank * last)];
+        };
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static Palette classic() {
+        final int period = 512 * 3 * 31;
+        final int[] colours = new int[period];
+        for (int iteration = 0; iteration < period; iteration++) {
+            colours[iteration] = Coloring.BLACK | (sawtooth(iteration) << 16) | (sawtooth(iteration / 31) << 8)
+                    | sawtooth(iteration / 3);
+        }
+        return new Palette("classic", colours, 1);
+    }
+
+    private static int sawtooth(int v) {
+        return abs((v & 0x1FE) - 0xFF);
+    }
+
+    /**
+     * Evenly spaced colours blended into each other, the last back into the first, once every {@code period}
+     * iterations.
+     */
+    private static Palette gradient(String name, int period, int... stops) {
+        final int[] colours = new int[GRADIENT_ENTRIES];
+        for (int i = 0; i < GRADIENT_ENTRIES; i++) {
+            final double position = (double) i * stops.length / GRADIENT_ENTRIES;
+            final int from = stops[(int) position], to = stops[((int) position + 1) % stops.length];
+            final double t = position - (int) position;
+            colours[i] = Coloring.BLACK | blend(from, to, t, 16) | blend(from, to, t, 8) | blend(from, to, t, 0);
+        }
+        return new Palette(name, colours, (float) GRADIENT_ENTRIES / period);
+    }
+
+    private static int blend(int from, int to, double t, int shift) {
+        final int a = (from >> shift) & 0xFF, b = (to >> shift) & 0xFF;
+        return (int) Math.round(a + (b - a) * t) << shift;
+    }
+}
@@ -0,0 +1,98 @@
+package fun;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deep zoom kernel. One {@link ReferenceOrbit} at the centre of the view is computed in high precision, and every
+ * pixel is iterated in doubles as a small perturbation from it: with z = Z + delta and c = C + dc,
+ * delta(n + 1) = 2 Z(n) delta(n) + delta(n)^2 + dc. Offsets from the centre are tiny but perfectly representable,
+ * so this works far beyond the point where the pixels' plane coordinates would all round to the same double.
+ * See {@link PrecisionTier}.
+ *
+ * Perturbation goes wrong ("glitches") when a pixel's orbit passes much closer to zero than the reference's, or
+ * outlives an escaping reference. Both are caught as they happen: when |z| drops below |delta|, or at the end of the
+ * reference orbit, the pixel is rebased onto the start of the reference with delta = z. Iteration counts use the
+ * same convention as {@link IterationResult#of}.
+ */
+public final class PerturbationKernel implements PixelKernel {
+    private final ReferenceOrbit reference;
+    private final SeriesApproximation series;
+    private final double delta;
+    private final double centreX;
+    private final double centreY;
+    private final int bailout;
+    private final LongAdder rebases = new LongAdder();
+
+    public PerturbationKernel(Viewport viewport, int bailout, boolean seriesApproximation) {
+        this.reference = ReferenceOrbit.compute(viewport.preciseCenter, bailout + 1, viewport.digitsNeeded());
+        this.delta = viewport.delta;
+        this.centreX = viewport.width / 2.0;
+        this.centreY = viewport.height / 2.0;
+        this.bailout = bailout;
+        final double radius = delta * Math.hypot(centreX, centreY);
+        this.series = seriesApproximation
+                ? SeriesApproximation.compute(reference, radius, bailout)
+                : SeriesApproximation.NONE;
+    }
+
+    @Override
+    public void iterate(int x, int y, int stepX, int stepY, int count, int[] iterations, double[] modulusSquared) {
+        final double[] referenceReal = reference.real();
+        final double[] referenceImaginary = reference.imaginary();
+        final int last = reference.last();
+        final int skip = series.skip();
+        final double[] start = new double[2];
+        long rebased = 0;
+        for (int i = 0; i < count; i++) {
+            final double dcx = delta * (x + i * stepX - centreX);
+            final double dcy = delta * (y + i * stepY - centreY);
+            series.deltaAt(dcx, dcy, start);
+            double dx = start[0], dy = start[1];
+            int m = skip;
+            int k = skip;
+            double zSquared;
+            while (true) {
+                final double zr = referenceReal[m], zi = referenceImaginary[m];
+                final double ndx = 2 * (zr * dx - zi * dy) + (dx * dx - dy * dy) + dcx;
+                final double ndy = 2 * (zr * dy + zi * dx) + 2 * dx * dy + dcy;
+                dx = ndx;
+                dy = ndy;
+                m++;
+                k++;
+                final double zx = referenceReal[m] + dx;
+                final double zy = referenceImaginary[m] + dy;
+                zSquared = zx * zx + zy * zy;
+                if (zSquared >= 4.0) {
+                    iterations[i] = k - 1;
+                    break;
+                }
+                if (k > bailout) {
+                    iterations[i] = bailout;
+                    break;
+                }
+                if (zSquared < dx * dx + dy * dy || m == last) {
+                    dx = zx;
+                    dy = zy;
+                    m = 0;
+                    rebased++;
+                }
+            }
+            modulusSquared[i] = zSquared;
+        }
+        rebases.add(rebased);
+    }
+
+    /**
+     * Iterations every pixel skipped thanks to series approximation.
+     */
+    public int getSeriesSkip() {
+        return series.skip();
+    }
+
+    /**
+     * Pixels rebased onto the reference so far, which is the number of glitches avoided.
+     */
+    public long getRebases() {
+        return rebases.sum();
+    }
+}
@@ -0,0 +1,45 @@
+package fun;
+
+import java.util.Arrays;
+
+/**
+ * A plain array of packed 0xAARRGGBB pixels, row by row. Nothing in here touches AWT, so it's safe for headless use.
+ */
+public final class PixelBuffer {
+    public final int width;
+    public final int height;
+    public final int[] pixels;
+
+    public PixelBuffer(int width, int height) {
+        this(width, height, new int[width * height]);
+    }
+
+    public PixelBuffer(int width, int height, int[] pixels) {
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("need " + width * height + " pixels, got " + pixels.length);
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    public int get(int x, int y) {
+        return pixels[y * width + x];
+    }
+
+    public void set(int x, int y, int argb) {
+        pixels[y * width + x] = argb;
+    }
+
+    /**
+     * Fill a rectangle, clipped to the buffer bounds.
+     */
+    public void fill(int x, int y, int w, int h, int argb) {
+        final int right = Math.min(x + w, width);
+        final int bottom = Math.min(y + h, height);
+        for (int row = y; row < bottom; row++) {
+            final int offset = row * width;
+            Arrays.fill(pixels, offset + x, offset + right, argb);
+        }
+    }
+}
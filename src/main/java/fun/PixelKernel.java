@@ -0,0 +1,13 @@
+package fun;
+
+/**
+ * Iterates runs of pixels of one particular view. Pixel {@code i} of a run is at
+ * {@code (x + i * stepX, y + i * stepY)}, so the same call covers rows, columns and strided samples.
+ *
+ * Unlike a {@link BatchKernel} this works from pixel positions rather than plane coordinates, which leaves each
+ * implementation free to pick its own arithmetic.
+ */
+public interface PixelKernel {
+
+    void iterate(int x, int y, int stepX, int stepY, int count, int[] iterations, double[] modulusSquared);
+}
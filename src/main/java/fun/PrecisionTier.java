@@ -0,0 +1,74 @@
+package fun;
+
+/**
+ * The arithmetic a view is rendered with. Each tier is good down to some pixel spacing, relative to the size of the
+ * coordinates, and costs more per iteration than the one before.
+ *
+ * Double-double could resolve views down to around 2^-80, but perturbation overtakes it long before that, so it only
+ * covers a short band past the end of plain doubles where a reference orbit isn't worth setting up.
+ */
+public enum PrecisionTier {
+    FLOAT(0x1p-12),
+    DOUBLE(0x1p-40),
+    DOUBLE_DOUBLE(0x1p-48),
+    PERTURBATION(0);
+
+    /**
+     * The smallest pixel spacing, relative to the coordinates' magnitude, this tier can resolve.
+     */
+    private final double finestRelativeDelta;
+
+    PrecisionTier(double finestRelativeDelta) {
+        this.finestRelativeDelta = finestRelativeDelta;
+    }
+
+    /**
+     * The cheapest tier that can resolve neighbouring pixels of this view.
+     */
+    public static PrecisionTier choose(Viewport viewport, int bailout) {
+        final double magnitude = Math.max(1, Math.max(
+                Math.max(Math.abs(viewport.topLeft.real), Math.abs(viewport.real(viewport.width))),
+                Math.max(Math.abs(viewport.topLeft.imaginary), Math.abs(viewport.imaginary(viewport.height)))));
+        final double relativeDelta = viewport.delta / magnitude;
+        for (PrecisionTier tier : values()) {
+            if (relativeDelta >= tier.finestRelativeDelta && (tier != FLOAT || bailout <= 1000)) {
+                return tier;
+            }
+        }
+        return PERTURBATION;
+    }
+
+    /**
+     * Like {@link #choose(Viewport, int)}, but always DOUBLE for fractals other than the Mandelbrot set.
+     */
+    public static PrecisionTier choose(Viewport viewport, int bailout, FractalKernel fractal) {
+        return fractal.isMandelbrot() ? choose(viewport, bailout) : DOUBLE;
+    }
+
+    /**
+     * A kernel for rendering this view in this tier.
+     */
+    public PixelKernel kernelFor(Viewport viewport, int bailout, BatchKernel kernel, FloatBatchKernel floatKernel,
+                                 boolean seriesApproximation) {
+        switch (this) {
+            case FLOAT:
+                return new FloatPixelKernel(viewport, floatKernel, bailout);
+            case DOUBLE:
+                return new DoublePixelKernel(viewport, kernel, bailout);
+            case DOUBLE_DOUBLE:
+                return new DoubleDoublePixelKernel(viewport, bailout);
+            default:
+                return new PerturbationKernel(viewport, bailout, seriesApproximation);
+        }
+    }
+
+    /**
+     * A kernel for rendering this view of a fractal: in this tier for the Mandelbrot set, and in doubles with the
+     * fractal's own loop for anything else.
+     */
+    public PixelKernel kernelFor(Viewport viewport, int bailout, FractalKernel fractal, BatchKernel kernel,
+                                 FloatBatchKernel floatKernel, boolean seriesApproximation) {
+        return fractal.isMandelbrot() ? kernelFor(viewport, bailout, kernel, floatKernel, seriesApproximation)
+                : new FractalPixelKernel(viewport, fractal, bailout);
+    }
+}
@@ -0,0 +1,179 @@
+package fun;
+
+import static java.lang.Math.*;
+
+/**
+ * What a new rendering can get from the one it replaces: its image, resampled as a preview of the new view, and the
+ * iteration data of points it finished that fall exactly on points of the new view.
+ *
+ * Points match exactly when both views are on the grid (see {@link Viewport#alignedToGrid}) and their pixel sizes
+ * are the same or differ by a whole factor, as after a pan or a click zoom. Otherwise there's only the preview.
+ */
+final class PreviousFrame {
+    /**
+     * How far apart, in pixels of the finer view, two points may be and still count as the same point.
+     */
+    private static final double SAME_POINT = 1e-3;
+
+    private final Rendering rendering;
+    private final Viewport viewport;
+    private final IterationBuffer buffer;
+    private final int[] image;
+
+    PreviousFrame(Rendering previous) {
+        this.rendering = previous;
+        this.viewport = previous.getViewport();
+        this.buffer = previous.getBuffer();
+        this.image = previous.getPixels().pixels.clone();
+    }
+
+    /**
+     * Paint the old image into {@code pixels} as seen from a new view, nearest pixel first, and black where the old
+     * image doesn't reach.
+     */
+    void preview(Viewport to, PixelBuffer pixels) {
+        final int[] columns = map(to.width, to.preciseCenter.real.subtract(viewport.preciseCenter.real).doubleValue(),
+                to.delta, viewport.width);
+        final int[] rows = map(to.height,
+                to.preciseCenter.imaginary.subtract(viewport.preciseCenter.imaginary).doubleValue(),
+                to.delta, viewport.height);
+        for (int y = 0; y < to.height; y++) {
+            for (int x = 0; x < to.width; x++) {
+                pixels.set(x, y, columns[x] < 0 || rows[y] < 0
+                        ? Coloring.BLACK : image[rows[y] * viewport.width + columns[x]]);
+            }
+        }
+    }
+
+    /**
+     * Whether the preview of a rectangle of the new view, corners inclusive, came entirely from the old image.
+     */
+    boolean covers(Viewport to, int x0, int y0, int x1, int y1) {
+        final double dx = to.preciseCenter.real.subtract(viewport.preciseCenter.real).doubleValue();
+        final double dy = to.preciseCenter.imaginary.subtract(viewport.preciseCenter.imaginary).doubleValue();
+        return inside(nearest(x0, to.width, dx, to.delta, viewport.width), viewport.width)
+                && inside(nearest(x1, to.width, dx, to.delta, viewport.width), viewport.width)
+                && inside(nearest(y0, to.height, dy, to.delta, viewport.height), viewport.height)
+                && inside(nearest(y1, to.height, dy, to.delta, viewport.height), viewport.height);
+    }
+
+    /**
+     * Copy iteration data for every point of a new view that the old rendering finished at exactly the same place,
+     * if both are of the same fractal and computed in the same tier. Points from another tier are never taken, as
+     * their counts are only as precise as that tier's arithmetic.
+     *
+     * If only the bailout has changed, the old data still holds for points that escaped below both bailouts, and after
+     * lowering the bailout, for every other point as well. After raising it, points that reached the old bailout are
+     * set up to be carried on from where they stopped instead, if the old rendering knows where that was, and are
+     * otherwise left to be computed afresh.
+     *
+     * @return how many points were copied
+     */
+    int reuse(Rendering into) {
+        final Viewport to = into.getViewport();
+        final IterationBuffer target = into.getBuffer();
+        if (!into.isAligned() || !rendering.isAligned() || !into.getRenderParameters().fractal.name()
+                .equals(rendering.getRenderParameters().fractal.name()) || into.getTier() != rendering.getTier()) {
+            return 0;
+        }
+        final int[] columns = exactMap(to.width, to.delta, to.gridX(0), viewport.gridX(0), viewport.width);
+        final int[] rows = exactMap(to.height, to.delta, to.gridY(0), viewport.gridY(0), viewport.height);
+        if (columns == null || rows == null) {
+            return 0;
+        }
+        // orbits only carry over between renderings that can both resume
+        final double[] oldX = into.getOrbitX() == null ? null : rendering.getOrbitX();
+        final double[] oldY = rendering.getOrbitY();
+        final double[] newX = into.getOrbitX(), newY = into.getOrbitY();
+        final int[] resumeFrom = into.getResumeFrom();
+        final boolean raised = target.bailout > buffer.bailout;
+        int reused = 0;
+        for (int y = 0; y < to.height; y++) {
+            if (rows[y] < 0) {
+                continue;
+            }
+            for (int x = 0; x < to.width; x++) {
+                if (columns[x] < 0 || !rendering.isFinished(columns[x], rows[y])) {
+                    continue;
+                }
+                final int from = rows[y] * viewport.width + columns[x];
+                final int index = y * to.width + x;
+                final int iterations = buffer.iterations[from];
+                final boolean orbit = oldX != null && oldY != null && !Double.isNaN(oldX[from]);
+                if (raised && iterations >= buffer.bailout) {
+                    if (orbit) {
+                        resumeFrom[index] = iterations;
+                        newX[index] = oldX[from];
+                        newY[index] = oldY[from];
+                    }
+                    continue;
+                }
+                target.iterations[index] = Math.min(iterations, target.bailout);
+                target.modulusSquared[index] = buffer.modulusSquared[from];
+                if (orbit && iterations <= target.bailout) {
+                    newX[index] = oldX[from];
+                    newY[index] = oldY[from];
+                }
+                reused++;
+            }
+        }
+        return reused;
+    }
+
+    /**
+     * Nearest old pixel for each new pixel along one axis, or -1 outside the old image.
+     *
+     * @param offset how far the new centre is from the old one
+     */
+    private int[] map(int size, double offset, double delta, int oldSize) {
+        final int[] map = new int[size];
+        for (int i = 0; i < size; i++) {
+            final int old = nearest(i, size, offset, delta, oldSize);
+            map[i] = inside(old, oldSize) ? old : -1;
+        }
+        return map;
+    }
+
+    private int nearest(int pixel, int size, double offset, double delta, int oldSize) {
+        final double old = (offset + delta * (pixel - size / 2.0)) / viewport.delta + oldSize / 2.0;
+        return (int) max(-1, min(Integer.MAX_VALUE, floor(old + 0.5)));
+    }
+
+    /**
+     * Old pixel at exactly the same place as each new pixel along one axis, or -1 where there isn't one. Null if the
+     * two grids don't line up at all.
+     */
+    private int[] exactMap(int size, double delta, long origin, long oldOrigin, int oldSize) {
+        final double ratio = delta / viewport.delta;
+        final long coarser = round(ratio), finer = round(1 / ratio);
+        final long multiply, divide;
+        if (coarser >= 1 && abs(ratio - coarser) < 1e-9 * coarser) {
+            multiply = coarser;
+            divide = 1;
+        } else if (finer > 1 && abs(1 / ratio - finer) < 1e-9 * finer) {
+            multiply = 1;
+            divide = finer;
+        } else {
+            return null;
+        }
+        final double tolerance = SAME_POINT * min(delta, viewport.delta);
+        final int[] map = new int[size];
+        for (int i = 0; i < size; i++) {
+            map[i] = -1;
+            final long point = origin + i;
+            if (point * multiply % divide != 0) {
+                continue;
+            }
+            final long oldPoint = point * multiply / divide;
+            final long old = oldPoint - oldOrigin;
+            if (old >= 0 && old < oldSize && abs(point * delta - oldPoint * viewport.delta) <= tolerance) {
+                map[i] = (int) old;
+            }
+        }
+        return map;
+    }
+
+    private static boolean inside(int pixel, int size) {
+        return pixel >= 0 && pixel < size;
+    }
+}
@@ -0,0 +1,66 @@
+package fun;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * The orbit of one point, computed in arbitrary precision and then stored as doubles: z(0) = 0,
+ * z(n + 1) = z(n)^2 + c. Every z(n) fits comfortably in a double since it stays within radius 2 until it escapes.
+ *
+ * The orbit ends either when it escapes or after {@code maxIterations}, and {@link #last()} is the index of the
+ * final stored value.
+ */
+public final class ReferenceOrbit {
+    private final double[] real;
+    private final double[] imaginary;
+    private final int last;
+
+    private ReferenceOrbit(double[] real, double[] imaginary, int last) {
+        this.real = real;
+        this.imaginary = imaginary;
+        this.last = last;
+    }
+
+    public static ReferenceOrbit compute(BigComplex c, int maxIterations, int digits) {
+        final MathContext mc = new MathContext(digits);
+        final double[] real = new double[maxIterations + 1];
+        final double[] imaginary = new double[maxIterations + 1];
+        final BigDecimal two = BigDecimal.valueOf(2);
+        BigDecimal zx = BigDecimal.ZERO;
+        BigDecimal zy = BigDecimal.ZERO;
+        int n = 0;
+        while (n < maxIterations) {
+            final BigDecimal zxSquared = zx.multiply(zx, mc);
+            final BigDecimal zySquared = zy.multiply(zy, mc);
+            zy = two.multiply(zx, mc).multiply(zy, mc).add(c.imaginary, mc);
+            zx = zxSquared.subtract(zySquared, mc).add(c.real, mc);
+            n++;
+            real[n] = zx.doubleValue();
+            imaginary[n] = zy.doubleValue();
+            if (real[n] * real[n] + imaginary[n] * imaginary[n] >= 4.0) {
+                break;
+            }
+        }
+        return new ReferenceOrbit(real, imaginary, n);
+    }
+
+    public int last() {
+        return last;
+    }
+
+    public double real(int n) {
+        return real[n];
+    }
+
+    public double imaginary(int n) {
+        return imaginary[n];
+    }
+
+    double[] real() {
+        return real;
+    }
+
+    double[] imaginary() {
+        return imaginary;
+    }
+}
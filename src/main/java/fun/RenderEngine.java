@@ -0,0 +1,525 @@
+package fun;
+
+import fun.metrics.RenderMetrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Headless renderer. Produces a finished pixel buffer for some render parameters and an image size, without any
+ * dependency on AWT or Swing.
+ *
+ * The arithmetic for each render is picked by {@link PrecisionTier#choose} unless a tier is forced, and each render
+ * logs its tier and how long it took. Each render's work is also counted in a {@link RenderMetrics}, which reports
+ * each row or block as a tile.
+ *
+ * Rendered images can be anti-aliased by a {@link Supersampler} pass once the rest is done, which supersamples only
+ * the pixels at sharp edges.
+ */
+public class RenderEngine {
+    private static final Logger LOG = Logger.getLogger(RenderEngine.class.getName());
+    static final int BLOCK_SIZE = 64;
+
+    public enum Mode {
+        /**
+         * Compute every pixel.
+         */
+        BRUTE_FORCE,
+        /**
+         * Skip the inside of blocks with a uniform border, see {@link MarianiSilver}.
+         */
+        MARIANI_SILVER
+    }
+
+    private final RenderScheduler scheduler;
+    private final BatchKernel kernel;
+    private final FloatBatchKernel floatKernel;
+    private final Mode mode;
+    private final boolean seriesApproximation;
+    private final PrecisionTier tier;
+    private final Palette palette;
+    private final boolean equalise;
+    private final int antialiasFactor;
+    private final RenderJob.Priority priority;
+    private final LongAdder skippedPixels = new LongAdder();
+    private final LongAdder deepRenders = new LongAdder();
+    private final LongAdder rebases = new LongAdder();
+    private final LongAdder seriesSkippedIterations = new LongAdder();
+    private final LongAdder supersampledPixels = new LongAdder();
+    private final LongAdder extraSamples = new LongAdder();
+
+    public RenderEngine() {
+        this(builder());
+    }
+
+    private RenderEngine(Builder builder) {
+        this.scheduler = builder.scheduler;
+        this.kernel = builder.kernel;
+        this.floatKernel = builder.floatKernel;
+        this.mode = builder.mode;
+        this.seriesApproximation = builder.seriesApproximation;
+        this.tier = builder.tier;
+        this.palette = builder.palette;
+        this.equalise = builder.equalise;
+        this.antialiasFactor = (int) Math.sqrt(Math.max(1, builder.antialiasSamples));
+        this.priority = builder.priority;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private RenderScheduler scheduler = RenderScheduler.shared();
+        private BatchKernel kernel = BatchKernel.best();
+        private FloatBatchKernel floatKernel = FloatBatchKernel.best();
+        private Mode mode = Mode.BRUTE_FORCE;
+        private boolean seriesApproximation = true;
+        private PrecisionTier tier = null;
+        private Palette palette = Palette.CLASSIC;
+        private boolean equalise = false;
+        private int antialiasSamples = 1;
+        private RenderJob.Priority priority = RenderJob.Priority.NORMAL;
+
+        public Builder scheduler(RenderScheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public Builder kernel(BatchKernel kernel) {
+            this.kernel = kernel;
+            return this;
+        }
+
+        public Builder floatKernel(FloatBatchKernel floatKernel) {
+            this.floatKernel = floatKernel;
+            return this;
+        }
+
+        public Builder mode(Mode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public Builder seriesApproximation(boolean seriesApproximation) {
+            this.seriesApproximation = seriesApproximation;
+            return this;
+        }
+
+        /**
+         * Always use this tier rather than choosing one per view. Null goes back to choosing.
+         */
+        public Builder tier(PrecisionTier tier) {
+            this.tier = tier;
+            return this;
+        }
+
+        public Builder palette(Palette palette) {
+            this.palette = palette;
+            return this;
+        }
+
+        /**
+         * Spread the palette over each render's points by iteration count, see {@link Palette#equalised}. Every
+         * point has to be known first, so rendered images are coloured in one pass at the end instead of as they go.
+         */
+        public Builder equalise(boolean equalise) {
+            this.equalise = equalise;
+            return this;
+        }
+
+        /**
+         * Supersample rendered images where they have sharp edges, with up to this many samples per pixel, rounded
+         * down to a square number. 1 turns anti-aliasing off.
+         */
+        public Builder antialias(int maxSamples) {
+            this.antialiasSamples = maxSamples;
+            return this;
+        }
+
+        /**
+         * How the scheduler ranks this engine's renders against other work, unless a render says otherwise.
+         */
+        public Builder priority(RenderJob.Priority priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        public RenderEngine build() {
+            return new RenderEngine(this);
+        }
+    }
+
+    /**
+     * Render a view. Cancelling the returned future cancels the render, dropping its queued work.
+     */
+    public CompletableFuture<PixelBuffer> render(RenderParameters renderParameters, int width, int height) {
+        return render(renderParameters, width, height, new RenderJob("render", priority));
+    }
+
+    /**
+     * Render a view as a job of its own, which says how the scheduler ranks it and keeps its queueing and service
+     * times.
+     */
+    public CompletableFuture<PixelBuffer> render(RenderParameters renderParameters, int width, int height,
+                                                 RenderJob job) {
+        final PixelBuffer pixels = new PixelBuffer(width, height);
+        final CancellationToken cancellation = new CancellationToken(job);
+        return cancellable(
+                compute(renderParameters, width, height, pixels, cancellation).thenApply(done -> pixels), cancellation);
+    }
+
+    /**
+     * Just the iteration data, without colouring it.
+     */
+    public CompletableFuture<IterationBuffer> iterate(RenderParameters renderParameters, int width, int height) {
+        final CancellationToken cancellation = new CancellationToken(new RenderJob("iterate", priority));
+        return cancellable(compute(renderParameters, width, height, null, cancellation), cancellation);
+    }
+
+    private <T> CompletableFuture<T> cancellable(CompletableFuture<T> future, CancellationToken cancellation) {
+        future.whenComplete((done, failure) -> {
+            if (future.isCancelled()) {
+                scheduler.cancel(cancellation);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Render a view too big to hold in memory, a band of {@code bandHeight} rows at a time. Bands are handed to
+     * {@code sink} in order from the top, each while the next is being computed, so no more than two bands' worth of
+     * iteration data is ever held. The arithmetic is set up once for the whole view, and every band is counted in
+     * one {@link RenderMetrics}.
+     *
+     * Cancelling the returned future stops the render after the band being computed.
+     */
+    public CompletableFuture<Void> renderBands(RenderParameters renderParameters, int width, int height,
+                                               int bandHeight, BandSink sink) {
+        return renderBands(renderParameters, width, height, bandHeight, sink, null);
+    }
+
+    /**
+     * Like {@link #renderBands(RenderParameters, int, int, int, BandSink)}, but keeping each tile in
+     * {@code checkpoint} as it finishes, and taking tiles it already has from it instead of computing them again. The
+     * checkpoint must be for the same view, size and mode. Each band is forced to disk once it's computed.
+     */
+    public CompletableFuture<Void> renderBands(RenderParameters renderParameters, int width, int height,
+                                               int bandHeight, BandSink sink, Checkpoint checkpoint) {
+        if (checkpoint != null && (checkpoint.mode != mode || checkpoint.width != width
+                || checkpoint.height != height || !sameView(checkpoint.parameters, renderParameters))) {
+            throw new IllegalArgumentException("checkpoint is for a different render");
+        }
+        // whole blocks, so that the blocks are on the image's grid whatever the band height
+        final int rowsPerBand = mode == Mode.MARIANI_SILVER
+                ? Math.max(BLOCK_SIZE, bandHeight / BLOCK_SIZE * BLOCK_SIZE) : bandHeight;
+        final long start = System.nanoTime();
+        final Viewport viewport = new Viewport(renderParameters, width, height);
+        final PrecisionTier renderTier = tierFor(viewport, renderParameters);
+        final PixelKernel pixelKernel = pixelKernelFor(renderTier, viewport, renderParameters);
+        final RenderMetrics metrics = new RenderMetrics("bands", width, height, renderParameters.bailout,
+                renderTier.name(), scheduler.getThreadCount(), scheduler::getQueueLength);
+        final CancellationToken cancellation = new CancellationToken(new RenderJob("bands", priority));
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final CompletableFuture<Void> bands = band(pixelKernel, width, height, rowsPerBand, renderParameters.bailout, 0,
+                CompletableFuture.completedFuture(null), sink, checkpoint, metrics, cancellation);
+        bands.whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                metrics.cancelled();
+                done.completeExceptionally(failure);
+                return;
+            }
+            metrics.completed();
+            finished(pixelKernel, renderTier, renderParameters, width, height, start);
+            done.complete(null);
+        });
+        return cancellable(done, cancellation);
+    }
+
+    /**
+     * Compute the band starting at {@code firstRow}, then write it once the band before it has been written, and
+     * start on the next one as soon as both have happened.
+     */
+    private CompletableFuture<Void> band(PixelKernel pixelKernel, int width, int height, int bandHeight, int bailout,
+                                         int firstRow, CompletableFuture<Void> previousWrite, BandSink sink,
+                                         Checkpoint checkpoint, RenderMetrics metrics,
+                                         CancellationToken cancellation) {
+        final IterationBuffer buffer = new IterationBuffer(width, Math.min(bandHeight, height - firstRow), bailout);
+        final CompletableFuture<Void> rows =
+                computeRows(pixelKernel, firstRow, height, buffer, null, null, checkpoint, metrics, cancellation);
+        return rows.thenCompose(computed -> {
+            if (checkpoint != null) {
+                checkpoint.force();
+            }
+            final CompletableFuture<Void> write = previousWrite.thenRunAsync(() -> {
+                try {
+                    sink.accept(firstRow, buffer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            final int nextRow = firstRow + buffer.height;
+            if (nextRow >= height) {
+                return write;
+            }
+            return previousWrite.thenCompose(written -> cancellation.isCancelled() ? write : band(pixelKernel,
+                    width, height, bandHeight, bailout, nextRow, write, sink, checkpoint, metrics, cancellation));
+        });
+    }
+
+    private CompletableFuture<IterationBuffer> compute(RenderParameters renderParameters, int width, int height,
+                                                       PixelBuffer pixels, CancellationToken cancellation) {
+        final long start = System.nanoTime();
+        final Viewport viewport = new Viewport(renderParameters, width, height);
+        final IterationBuffer buffer = new IterationBuffer(width, height, renderParameters.bailout);
+        final PrecisionTier renderTier = tierFor(viewport, renderParameters);
+        final PixelKernel pixelKernel = pixelKernelFor(renderTier, viewport, renderParameters);
+        final RenderMetrics metrics = new RenderMetrics("engine", width, height, renderParameters.bailout,
+                renderTier.name(), scheduler.getThreadCount(), scheduler::getQueueLength);
+        final SmoothBuffer smooth = pixels == null ? null : new SmoothBuffer(width, height);
+        final CompletableFuture<Void> all = computeRows(pixelKernel, 0, height, buffer, smooth,
+                equalise ? null : pixels, null, metrics, cancellation);
+        all.whenComplete((done, failure) -> {
+            if (failure != null) {
+                metrics.cancelled();
+            }
+        });
+        return all.thenCompose(done -> {
+            if (pixels == null) {
+                return all;
+            }
+            final ColourMap colours = equalise ? palette.equalised(buffer.histogram()) : palette;
+            if (equalise) {
+                smooth.colour(0, 0, width, height, colours, pixels);
+            }
+            return antialiasFactor > 1
+                    ? antialias(renderTier, renderParameters, smooth, colours, pixels, cancellation) : all;
+        }).thenApply(done -> {
+            metrics.completed();
+            finished(pixelKernel, renderTier, renderParameters, width, height, start);
+            return buffer;
+        });
+    }
+
+    /**
+     * Fill {@code buffer} with the rows of the view starting at {@code firstRow}, and {@code smooth} with their smooth
+     * iteration counts if it isn't null, colouring them into {@code pixels} too if that isn't null either. Tiles
+     * {@code checkpoint} has are taken from it, and the rest saved to it as they finish, if it isn't null.
+     *
+     * Blocks are on a grid of BLOCK_SIZE pixels from the top left, each owning the pixels up to the next block's
+     * border. A block's bottom border is the next block's top even when that's in the next band, only stopping at
+     * the bottom of the {@code imageHeight} rows, so a band of whole blocks comes out the same as those rows of any
+     * other render of the same view.
+     */
+    private CompletableFuture<Void> computeRows(PixelKernel viewKernel, int firstRow, int imageHeight,
+                                                IterationBuffer buffer, SmoothBuffer smooth, PixelBuffer pixels,
+                                                Checkpoint checkpoint, RenderMetrics metrics,
+                                                CancellationToken cancellation) {
+        final PixelKernel pixelKernel = firstRow == 0 ? viewKernel : (x, y, stepX, stepY, count, iterations,
+                modulusSquared) -> viewKernel.iterate(x, y + firstRow, stepX, stepY, count, iterations, modulusSquared);
+        final int width = buffer.width, height = buffer.height;
+        final List<CompletableFuture<Void>> parts = new ArrayList<>();
+        final MarianiSilver marianiSilver =
+                mode == Mode.MARIANI_SILVER ? new MarianiSilver(pixelKernel, buffer, cancellation) : null;
+        if (marianiSilver != null) {
+            for (int y = 0; y < height; y += BLOCK_SIZE) {
+                for (int x = 0; x < width; x += BLOCK_SIZE) {
+                    final int x0 = x, y0 = y;
+                    final int x1 = Math.min(x + BLOCK_SIZE, width - 1);
+                    final int y1 = Math.min(y + BLOCK_SIZE, imageHeight - firstRow - 1);
+                    // blocks share their edges, so each owns the pixels up to the next one's
+                    final int w = Math.min(BLOCK_SIZE, width - x0), h = Math.min(BLOCK_SIZE, height - y0);
+                    if (checkpoint != null && checkpoint.isFinished(x0, firstRow + y0)) {
+                        parts.add(scheduler.submit(cancellation, 0, () -> {
+                            checkpoint.restore(firstRow, buffer, x0, y0, w, h);
+                            colour(buffer, smooth, pixels, x0, y0, w, h);
+                        }));
+                        continue;
+                    }
+                    parts.add(scheduler.submit(cancellation, 0, metrics.track(() -> {
+                        final long tileStart = System.nanoTime();
+                        marianiSilver.render(x0, y0, x1, y1);
+                        colour(buffer, smooth, pixels, x0, y0, x1 - x0 + 1, Math.min(y1, height - 1) - y0 + 1);
+                        if (checkpoint != null) {
+                            checkpoint.save(firstRow, buffer, x0, y0, w, h);
+                        }
+                        metrics.tile(x0, firstRow + y0, w, h, w * h, buffer.totalIterations(x0, y0, w, h), tileStart);
+                    })));
+                }
+            }
+        } else {
+            for (int y = 0; y < height; y++) {
+                final int row = y;
+                if (checkpoint != null && checkpoint.isFinished(0, firstRow + row)) {
+                    parts.add(scheduler.submit(cancellation, 0, () -> {
+                        checkpoint.restore(firstRow, buffer, 0, row, width, 1);
+                        colour(buffer, smooth, pixels, 0, row, width, 1);
+                    }));
+                    continue;
+                }
+                parts.add(scheduler.submit(cancellation, 0, metrics.track(() -> {
+                    final long rowStart = System.nanoTime();
+                    computeRow(pixelKernel, row, buffer);
+                    colour(buffer, smooth, pixels, 0, row, width, 1);
+                    if (checkpoint != null) {
+                        checkpoint.save(firstRow, buffer, 0, row, width, 1);
+                    }
+                    metrics.tile(0, firstRow + row, width, 1, width, buffer.totalIterations(0, row, width, 1),
+                            rowStart);
+                })));
+            }
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenRun(() -> {
+            if (marianiSilver != null) {
+                skippedPixels.add(marianiSilver.getFilledPixels());
+            }
+        });
+    }
+
+    /**
+     * Supersample the pixels of a finished render that are at sharp edges, a row at a time.
+     */
+    private CompletableFuture<Void> antialias(PrecisionTier renderTier, RenderParameters renderParameters,
+                                              SmoothBuffer smooth, ColourMap colours, PixelBuffer pixels,
+                                              CancellationToken cancellation) {
+        final Viewport fine = new Viewport(renderParameters, smooth.width * antialiasFactor,
+                smooth.height * antialiasFactor);
+        final PrecisionTier fineTier = tierFor(fine, renderParameters);
+        // the finer tier of the two, in case the finer pixels cross into the next one
+        final PrecisionTier sampleTier = fineTier.ordinal() > renderTier.ordinal() ? fineTier : renderTier;
+        final Supersampler supersampler = new Supersampler(
+                sampleTier.kernelFor(fine, renderParameters.bailout, renderParameters.fractal, kernel, floatKernel,
+                        seriesApproximation),
+                antialiasFactor, smooth, renderParameters.bailout);
+        final List<CompletableFuture<Void>> rows = new ArrayList<>();
+        for (int y = 0; y < smooth.height; y++) {
+            final int row = y;
+            rows.add(scheduler.submit(cancellation, 0, () -> supersampler.row(row, colours, pixels)));
+        }
+        return CompletableFuture.allOf(rows.toArray(new CompletableFuture<?>[0])).thenRun(() -> {
+            supersampledPixels.add(supersampler.getSupersampledPixels());
+            extraSamples.add(supersampler.getExtraSamples());
+        });
+    }
+
+    private void colour(IterationBuffer buffer, SmoothBuffer smooth, PixelBuffer pixels, int x, int y, int w, int h) {
+        if (smooth != null) {
+            smooth.update(buffer, x, y, w, h);
+            if (pixels != null) {
+                smooth.colour(x, y, w, h, palette, pixels);
+            }
+        }
+    }
+
+    private void finished(PixelKernel pixelKernel, PrecisionTier renderTier, RenderParameters renderParameters,
+                          int width, int height, long start) {
+        if (pixelKernel instanceof PerturbationKernel) {
+            rebases.add(((PerturbationKernel) pixelKernel).getRebases());
+        }
+        LOG.info(String.format("%dx%d %s render at width %.3g, bailout %d: %d ms", width, height, renderTier,
+                renderParameters.width, renderParameters.bailout,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    /**
+     * The forced tier if there is one and the fractal has it, otherwise the cheapest that will do.
+     */
+    private PrecisionTier tierFor(Viewport viewport, RenderParameters renderParameters) {
+        return tier != null && renderParameters.fractal.isMandelbrot() ? tier
+                : PrecisionTier.choose(viewport, renderParameters.bailout, renderParameters.fractal);
+    }
+
+    private PixelKernel pixelKernelFor(PrecisionTier renderTier, Viewport viewport,
+                                       RenderParameters renderParameters) {
+        final PixelKernel pixelKernel = renderTier.kernelFor(viewport, renderParameters.bailout,
+                renderParameters.fractal, kernel, floatKernel, seriesApproximation);
+        if (pixelKernel instanceof PerturbationKernel) {
+            deepRenders.increment();
+            seriesSkippedIterations.add(
+                    (long) ((PerturbationKernel) pixelKernel).getSeriesSkip() * viewport.width * viewport.height);
+        }
+        return pixelKernel;
+    }
+
+    private static boolean sameView(RenderParameters a, RenderParameters b) {
+        return a.preciseCenter.real.compareTo(b.preciseCenter.real) == 0
+                && a.preciseCenter.imaginary.compareTo(b.preciseCenter.imaginary) == 0
+                && a.width == b.width && a.bailout == b.bailout && a.fractal.name().equals(b.fractal.name());
+    }
+
+    private static void computeRow(PixelKernel pixelKernel, int y, IterationBuffer buffer) {
+        final int width = buffer.width;
+        final int[] iterations = new int[width];
+        final double[] modulusSquared = new double[width];
+        pixelKernel.iterate(0, y, 1, 0, width, iterations, modulusSquared);
+        System.arraycopy(iterations, 0, buffer.iterations, y * width, width);
+        System.arraycopy(modulusSquared, 0, buffer.modulusSquared, y * width, width);
+    }
+
+    /**
+     * Takes the bands of a {@link #renderBands} render, in order from the top.
+     */
+    public interface BandSink {
+        /**
+         * @param band iteration data for rows {@code firstRow} to {@code firstRow + band.height - 1}, only valid
+         *             until this returns
+         */
+        void accept(int firstRow, IterationBuffer band) throws IOException;
+    }
+
+    public BatchKernel getKernel() {
+        return kernel;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Pixels filled in from their surroundings instead of being iterated, over every render so far.
+     */
+    public long getSkippedPixels() {
+        return skippedPixels.sum();
+    }
+
+    /**
+     * Renders so far that were deep enough to need perturbation.
+     */
+    public long getDeepRenders() {
+        return deepRenders.sum();
+    }
+
+    /**
+     * Perturbation glitches avoided by rebasing, over every render so far.
+     */
+    public long getRebases() {
+        return rebases.sum();
+    }
+
+    /**
+     * Pixel iterations skipped by series approximation, over every render so far.
+     */
+    public long getSeriesSkippedIterations() {
+        return seriesSkippedIterations.sum();
+    }
+
+    /**
+     * Pixels anti-aliased, over every render so far.
+     */
+    public long getSupersampledPixels() {
+        return supersampledPixels.sum();
+    }
+
+    /**
+     * Samples taken by anti-aliasing on top of one per pixel, over every render so far.
+     */
+    public long getExtraSamples() {
+        return extraSamples.sum();
+    }
+}
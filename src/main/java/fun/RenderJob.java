@@ -0,0 +1,113 @@
+package fun;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What the {@link RenderScheduler} knows about one render: how urgent it is, and how it got on. Every
+ * {@link CancellationToken} belongs to a job, and the scheduler shares its threads between jobs rather than between
+ * pieces of work, see {@link RenderScheduler}.
+ *
+ * Queueing time is from the job's first piece of work being submitted to any of its work starting, and service time
+ * is the time its work spent running, summed over threads.
+ */
+public final class RenderJob {
+    public enum Priority {
+        /**
+         * Someone is watching: the window, or a tile server request. Always goes ahead of the others.
+         */
+        INTERACTIVE,
+        NORMAL,
+        /**
+         * Big renders nobody is waiting on from moment to moment: posters, gigapixels, animations.
+         */
+        BATCH
+    }
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    public final String name;
+    public final Priority priority;
+    private final long deadline;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong finished = new AtomicLong();
+    private final LongAdder serviceNanos = new LongAdder();
+    private final LongAdder tiles = new LongAdder();
+
+    public RenderJob(String name, Priority priority) {
+        this(name, priority, NO_DEADLINE);
+    }
+
+    private RenderJob(String name, Priority priority, long deadline) {
+        this.name = name;
+        this.priority = priority;
+        this.deadline = deadline;
+    }
+
+    /**
+     * The same job, due {@code millis} from now. Among jobs of the same priority, the earliest due goes first.
+     */
+    public RenderJob dueIn(long millis) {
+        return new RenderJob(name, priority, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * When it's due, in {@link System#nanoTime} terms, if it {@link #hasDeadline has one}.
+     */
+    long getDeadline() {
+        return deadline;
+    }
+
+    void submitted(long now) {
+        submitted.compareAndSet(0, now);
+    }
+
+    void started(long now) {
+        started.compareAndSet(0, now);
+    }
+
+    void ran(long startNanos, long endNanos) {
+        finished.accumulateAndGet(endNanos, Math::max);
+        serviceNanos.add(endNanos - startNanos);
+        tiles.increment();
+    }
+
+    public boolean hasDeadline() {
+        return deadline != NO_DEADLINE;
+    }
+
+    /**
+     * Whether the last of its work so far finished after it was due.
+     */
+    public boolean isLate() {
+        return hasDeadline() && finished.get() != 0 && finished.get() - deadline > 0;
+    }
+
+    public long getTiles() {
+        return tiles.sum();
+    }
+
+    public long getQueueMillis() {
+        return started.get() == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(started.get() - submitted.get());
+    }
+
+    public long getServiceMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(serviceNanos.sum());
+    }
+
+    /**
+     * From its first work being submitted to its last finishing, so far.
+     */
+    public long getElapsedMillis() {
+        return finished.get() == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(finished.get() - submitted.get());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s): %d tiles, queued %d ms, service %d ms, elapsed %d ms%s", name, priority,
+                getTiles(), getQueueMillis(), getServiceMillis(), getElapsedMillis(),
+                !hasDeadline() ? "" : isLate() ? ", late" : ", on time");
+    }
+}
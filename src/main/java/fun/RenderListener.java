@@ -0,0 +1,23 @@
+package fun;
+
+/**
+ * Hears about a {@link Rendering}'s progress as it's made, on the calculator threads, so a live display can update
+ * just what changed instead of polling the whole image. Both calls come often and from many threads at once, so they
+ * should do no more than note what they're told.
+ */
+public interface RenderListener {
+    RenderListener NONE = new RenderListener() {
+    };
+
+    /**
+     * Pixels in a rectangle of the image have been painted.
+     */
+    default void painted(int x, int y, int width, int height) {
+    }
+
+    /**
+     * A point with this many iterations has been added to the histogram.
+     */
+    default void counted(int iterations) {
+    }
+}
@@ -3,13 +3,25 @@ package fun;
 
 public final class RenderParameters {
     public final Complex center;
+    public final BigComplex preciseCenter;
     public final double width;
     public final int bailout;
+    public final FractalKernel fractal;
 
     public RenderParameters(Complex center, double width, int bailout) {
-        this.center = center;
+        this(BigComplex.of(center), width, bailout);
+    }
+
+    public RenderParameters(BigComplex preciseCenter, double width, int bailout) {
+        this(preciseCenter, width, bailout, FractalKernel.MANDELBROT);
+    }
+
+    public RenderParameters(BigComplex preciseCenter, double width, int bailout, FractalKernel fractal) {
+        this.center = preciseCenter.toComplex();
+        this.preciseCenter = preciseCenter;
         this.width = width;
         this.bailout = bailout;
+        this.fractal = fractal;
     }
 
     public static RenderParameters INITIAL = new RenderParameters(Complex.ORIGIN, 4, 100);
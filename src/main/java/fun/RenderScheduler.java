@@ -0,0 +1,293 @@
+package fun;
+
+import fun.metrics.RenderStatistics;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One long-lived, fixed size pool of render threads, shared by every render in the JVM. Each piece of work belongs to
+ * a {@link CancellationToken}, so that a whole render can be dropped at once, and through it to a {@link RenderJob},
+ * and the threads are shared out between jobs a piece of work at a time:
+ *
+ * <ol>
+ * <li>by the job's {@link RenderJob.Priority}, strictly, so an interactive job's next tile starts as soon as any
+ * thread finishes what it's doing, however much batch work is queued</li>
+ * <li>then earliest deadline first, jobs with a deadline going before those without</li>
+ * <li>then fairly, to whichever job has had the least time on the threads since it last had work queued (start-time
+ * fair queueing, with each piece of work charged at the job's recent average and corrected once it's run), so that a
+ * big job submitted first doesn't hold up small ones submitted after it</li>
+ * </ol>
+ *
+ * Within a job, work runs lower priority values first and in submission order among equals.
+ *
+ * Threads are started up front, so the first pixels of a render never wait for a pool to spin up, and no number of
+ * renders ever adds threads.
+ */
+public final class RenderScheduler {
+    private static RenderScheduler shared;
+
+    private final Object lock = new Object();
+    private final Map<CancellationToken, Flow> flows = new IdentityHashMap<>();
+    private final Thread[] threads;
+    private long sequence;
+    private volatile int queued;
+    private boolean shutdown;
+
+    public RenderScheduler(int threads) {
+        this.threads = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            this.threads[i] = new Thread(this::work, "render-" + (i + 1));
+            this.threads[i].setDaemon(true);
+            this.threads[i].start();
+        }
+    }
+
+    /**
+     * The scheduler everything uses unless told otherwise, with one thread per processor.
+     */
+    public static synchronized RenderScheduler shared() {
+        if (shared == null) {
+            shared = new RenderScheduler(Runtime.getRuntime().availableProcessors());
+            RenderStatistics.get().setQueueDepth(shared::getQueueLength);
+        }
+        return shared;
+    }
+
+    /**
+     * Queue some work. The future completes when it has run, or with a {@link CancellationException} if its token
+     * was cancelled first.
+     */
+    public CompletableFuture<Void> submit(CancellationToken token, int priority, Runnable work) {
+        final Task task = new Task(token, priority, work);
+        if (token.isCancelled()) {
+            task.cancelled();
+            return task.done;
+        }
+        synchronized (lock) {
+            if (shutdown) {
+                throw new RejectedExecutionException("scheduler is shut down");
+            }
+            task.sequence = sequence++;
+            Flow flow = flows.get(token);
+            if (flow == null) {
+                flow = new Flow(token.getJob(), startingTime(token.getJob().priority));
+                flows.put(token, flow);
+            }
+            flow.tasks.add(task);
+            queued++;
+            token.getJob().submitted(System.nanoTime());
+            lock.notify();
+        }
+        return task.done;
+    }
+
+    /**
+     * Cancel a token and throw away everything still queued for it.
+     */
+    public void cancel(CancellationToken token) {
+        token.cancel();
+        final List<Task> dropped = new ArrayList<>();
+        synchronized (lock) {
+            final Flow flow = flows.get(token);
+            if (flow != null) {
+                dropped.addAll(flow.tasks);
+                flow.tasks.clear();
+                queued -= dropped.size();
+                if (flow.running == 0) {
+                    flows.remove(token);
+                }
+            }
+        }
+        dropped.forEach(Task::cancelled);
+    }
+
+    public int getQueueLength() {
+        return queued;
+    }
+
+    public int getThreadCount() {
+        return threads.length;
+    }
+
+    /**
+     * The jobs with work queued or running.
+     */
+    public List<RenderJob> getActiveJobs() {
+        final List<RenderJob> jobs = new ArrayList<>();
+        synchronized (lock) {
+            for (Flow flow : flows.values()) {
+                jobs.add(flow.job);
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Stop taking work, cancel everything queued, and wait a little for running work to finish.
+     */
+    public void shutdown() throws InterruptedException {
+        final List<Task> dropped = new ArrayList<>();
+        synchronized (lock) {
+            shutdown = true;
+            for (Flow flow : flows.values()) {
+                dropped.addAll(flow.tasks);
+                flow.tasks.clear();
+            }
+            queued = 0;
+            lock.notifyAll();
+        }
+        dropped.forEach(Task::cancelled);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Thread thread : threads) {
+            thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+    }
+
+    private void work() {
+        while (true) {
+            final Flow flow;
+            final Task task;
+            final long charged;
+            synchronized (lock) {
+                while (!shutdown && queued == 0) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // the pool is fixed and shared, so only shutdown stops a thread
+                    }
+                }
+                if (shutdown) {
+                    return;
+                }
+                flow = next();
+                task = flow.tasks.poll();
+                queued--;
+                flow.running++;
+                charged = flow.averageNanos;
+                flow.virtualTime += charged;
+            }
+            final long start = System.nanoTime();
+            flow.job.started(start);
+            task.run();
+            final long end = System.nanoTime();
+            flow.job.ran(start, end);
+            synchronized (lock) {
+                flow.running--;
+                flow.virtualTime += end - start - charged;
+                flow.averageNanos += (end - start - flow.averageNanos) / 8;
+                if (flow.running == 0 && flow.tasks.isEmpty() && flows.get(task.token) == flow) {
+                    flows.remove(task.token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Where a job that's just had work queued starts: level with the job of the same priority that has had least
+     * time so far, so that it neither makes up for time it wasn't waiting nor waits for time it wasn't given. With
+     * the lock held.
+     */
+    private long startingTime(RenderJob.Priority priority) {
+        long least = Long.MAX_VALUE;
+        for (Flow flow : flows.values()) {
+            if (flow.job.priority == priority) {
+                least = Math.min(least, flow.virtualTime);
+            }
+        }
+        return least == Long.MAX_VALUE ? 0 : least;
+    }
+
+    /**
+     * The job whose work goes next, of those with work queued. With the lock held.
+     */
+    private Flow next() {
+        Flow best = null;
+        for (Flow flow : flows.values()) {
+            if (!flow.tasks.isEmpty() && (best == null || flow.goesBefore(best))) {
+                best = flow;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * One job's queued work, and its share of the threads so far.
+     */
+    private static final class Flow {
+        private final RenderJob job;
+        private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+        private long virtualTime;
+        private long averageNanos = TimeUnit.MILLISECONDS.toNanos(1);
+        private int running;
+
+        Flow(RenderJob job, long virtualTime) {
+            this.job = job;
+            this.virtualTime = virtualTime;
+        }
+
+        boolean goesBefore(Flow other) {
+            if (job.priority != other.job.priority) {
+                return job.priority.ordinal() < other.job.priority.ordinal();
+            }
+            if (job.hasDeadline() != other.job.hasDeadline()) {
+                return job.hasDeadline();
+            }
+            if (job.hasDeadline() && job.getDeadline() != other.job.getDeadline()) {
+                // nanoTime values only compare by difference
+                return job.getDeadline() - other.job.getDeadline() < 0;
+            }
+            if (virtualTime != other.virtualTime) {
+                return virtualTime < other.virtualTime;
+            }
+            return tasks.peek().sequence < other.tasks.peek().sequence;
+        }
+    }
+
+    private static final class Task implements Runnable, Comparable<Task> {
+        private final CancellationToken token;
+        private final int priority;
+        private final Runnable work;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private long sequence;
+
+        Task(CancellationToken token, int priority, Runnable work) {
+            this.token = token;
+            this.priority = priority;
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            if (token.isCancelled()) {
+                cancelled();
+                return;
+            }
+            try {
+                work.run();
+                done.complete(null);
+            } catch (Throwable t) {
+                done.completeExceptionally(t);
+            }
+        }
+
+        void cancelled() {
+            done.completeExceptionally(new CancellationException());
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            if (priority != o.priority) {
+                return Integer.compare(priority, o.priority);
+            }
+            return Long.compare(sequence, o.sequence);
+        }
+    }
+}
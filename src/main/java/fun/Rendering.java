@@ -1,169 +1,598 @@
 package fun;
 
-import java.awt.*;
+import fun.metrics.RenderMetrics;
+
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.lang.Math.*;
-import static java.lang.Math.abs;
-import static java.lang.Math.log;
 
+/**
+ * Progressive interactive rendering into a pixel buffer.
+ *
+ * The image is cut into {@value #TILE_SIZE} pixel square tiles, and each tile is refined level by level: level n
+ * computes the points on a 2^n pixel grid that coarser levels haven't already done, and paints each one as a
+ * 2^n pixel block. A tile's next level is queued as soon as its current one is done. The whole image therefore
+ * sharpens evenly, coarse levels first and tiles nearest the centre first within a level, and each unit of work is a
+ * batch of points rather than a single one.
+ *
+ * Views shallow enough for doubles are moved onto a grid shared by every view at the same scale (see
+ * {@link Viewport#alignedToGrid}), and tiles sit on that grid. With a {@link TileCache}, tiles found in the cache are
+ * painted before anything is computed, and tiles wholly inside the image are cached once finished.
+ *
+ * Started from a previous rendering, the old image is first resampled into the new view as a preview, and points
+ * the previous rendering had finished at exactly the same place (after a pan, or a zoom by a whole factor) are taken
+ * over rather than computed again, see {@link PreviousFrame}. Tiles the preview covers are refined point by point
+ * instead of in blocks, so the preview is never coarsened.
+ *
+ * Each refinement step is reported to a {@link RenderMetrics} as a tile, and the rendering counts as completed once
+ * every tile has been computed at full resolution.
+ *
+ * Where the kernel can resume (see {@link ResumablePixelKernel}), z is kept for every point as well, so that when
+ * the same view is rendered again with a higher bailout, points that had already escaped are taken over as they are
+ * and only the ones that reached the old bailout are carried on, from where they stopped.
+ *
+ * Smooth iteration counts are kept for every known point in a {@link SmoothBuffer}, so changing the colouring repaints
+ * those points straight away without iterating. An equalised palette is worked out again from the histogram once the
+ * rendering is complete.
+ */
 public class Rendering {
+    static final int TILE_SIZE = 64;
+    private static final int TOP_LEVEL = 6;
+
     private final RenderParameters renderParameters;
-    private final Dimension imageSize;
-    private final double delta;
-    private final Complex topLeft;
-    private final Graphics graphics;
+    private final Viewport viewport;
+    private final boolean aligned;
+    private final PrecisionTier tier;
+    private final PixelKernel kernel;
+    private final PixelBuffer pixels;
+    private final IterationBuffer buffer;
+    private final SmoothBuffer smooth;
+    private final double[] orbitX;
+    private final double[] orbitY;
+    private final int[] resumeFrom;
+    private volatile RenderListener listener = RenderListener.NONE;
+    private final TileCache cache;
+    private final PreviousFrame previous;
     private final AtomicInteger progress = new AtomicInteger(0);
+    private final AtomicInteger tilesLeft = new AtomicInteger(0);
+    private long originX;
+    private long originY;
+    private int tileColumns;
+    private Tile[] tiles = new Tile[0];
 
-    private final ExecutorService boss = Executors.newSingleThreadExecutor(),
-            calculators = Executors.newWorkStealingPool(),
-            painter = Executors.newSingleThreadExecutor();
-
-    private final PriorityBlockingQueue<Runnable> workQueue = new PriorityBlockingQueue<>(1000);
-    private final Histogram iterationHistogram = new Histogram();
+    private final RenderScheduler scheduler;
+    private final CancellationToken cancellation =
+            new CancellationToken(new RenderJob("interactive", RenderJob.Priority.INTERACTIVE));
+    private final AtomicInteger queueLength = new AtomicInteger(0);
+    private final AtomicInteger running = new AtomicInteger(0);
+    private final Histogram iterationHistogram;
+    private final RenderMetrics metrics;
+    private volatile Palette palette = Palette.CLASSIC;
+    private volatile boolean equalise;
+    private volatile ColourMap colours = Palette.CLASSIC;
 
     public Rendering(RenderParameters renderParameters, BufferedImage image) {
-        this.renderParameters = renderParameters;
-        this.imageSize = new Dimension(image.getWidth(), image.getHeight());
-        double height = imageSize.height * renderParameters.width / imageSize.width;
-        this.delta = renderParameters.width / imageSize.width;
-        this.topLeft = new Complex(
-                renderParameters.center.real - renderParameters.width / 2,
-                renderParameters.center.imaginary - height / 2
-        );
-        this.graphics = image.getGraphics();
+        this(renderParameters, image, null, null);
+    }
 
+    /**
+     * @param previous the rendering this one replaces, whose image and finished points it reuses, or null
+     */
+    public Rendering(RenderParameters renderParameters, BufferedImage image, TileCache cache, Rendering previous) {
+        this(renderParameters, pixelsOf(image), RenderScheduler.shared(), cache, previous);
     }
 
-    public void stop() {
-        calculators.shutdownNow();
-        painter.shutdownNow();
-        boss.shutdownNow();
-        workQueue.clear();
+    public Rendering(RenderParameters renderParameters, PixelBuffer pixels, RenderScheduler scheduler) {
+        this(renderParameters, pixels, scheduler, null, null);
     }
 
-    public Rendering startRendering() {
-        int initialScaleLog2 = (int) ceil((log(max(imageSize.width, imageSize.height)) / log(2)));
-        workQueue.add(taskForPosition(0, 0, 1 << initialScaleLog2, false, 0));
-        boss.submit((Runnable) () -> {
-            while (true) {
+    /**
+     * Calculator threads write straight into these pixels, so they should be backing whatever gets displayed.
+     *
+     * @param cache where to look for and keep finished tiles, or null to compute everything
+     * @param previous the rendering this one replaces, whose image and finished points it reuses, or null. It should
+     *                 have been stopped, and be the same size.
+     */
+    public Rendering(RenderParameters renderParameters, PixelBuffer pixels, RenderScheduler scheduler,
+                     TileCache cache, Rendering previous) {
+        if (cache != null && cache.getTileSize() != TILE_SIZE) {
+            throw new IllegalArgumentException("cache must hold " + TILE_SIZE + " pixel tiles");
+        }
+        final Viewport requested = new Viewport(renderParameters, pixels.width, pixels.height);
+        this.renderParameters = renderParameters;
+        this.tier = PrecisionTier.choose(requested, renderParameters.bailout, renderParameters.fractal);
+        this.aligned = tier != PrecisionTier.PERTURBATION;
+        this.cache = aligned ? cache : null;
+        this.viewport = aligned ? requested.alignedToGrid() : requested;
+        this.kernel = tier.kernelFor(viewport, renderParameters.bailout, renderParameters.fractal,
+                BatchKernel.best(), FloatBatchKernel.best(), true);
+        this.pixels = pixels;
+        this.buffer = new IterationBuffer(pixels.width, pixels.height, renderParameters.bailout);
+        Arrays.fill(buffer.iterations, -1);
+        this.smooth = new SmoothBuffer(pixels.width, pixels.height);
+        // z where each point stopped, NaN where it isn't known; and how far to carry points on from, 0 for afresh
+        final boolean resumable = kernel instanceof ResumablePixelKernel;
+        this.orbitX = resumable ? new double[pixels.width * pixels.height] : null;
+        this.orbitY = resumable ? new double[pixels.width * pixels.height] : null;
+        this.resumeFrom = resumable ? new int[pixels.width * pixels.height] : null;
+        if (orbitX != null) {
+            Arrays.fill(orbitX, Double.NaN);
+            Arrays.fill(orbitY, Double.NaN);
+        }
+        this.previous = previous == null ? null : new PreviousFrame(previous);
+        this.scheduler = scheduler;
+        this.iterationHistogram = new Histogram(renderParameters.bailout + 1);
+        this.metrics = new RenderMetrics("interactive", pixels.width, pixels.height, renderParameters.bailout,
+                tier.name(), scheduler.getThreadCount(), scheduler::getQueueLength);
+    }
+
+    /**
+     * Wraps the raster of an INT_RGB or INT_ARGB image without copying it.
+     */
+    public static PixelBuffer pixelsOf(BufferedImage image) {
+        if (!(image.getRaster().getDataBuffer() instanceof DataBufferInt)) {
+            throw new IllegalArgumentException("image must be backed by packed ints, got type " + image.getType());
+        }
+        final int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        return new PixelBuffer(image.getWidth(), image.getHeight(), data);
+    }
+
+    /**
+     * Drop everything still queued for this rendering, and wait for work already running to notice, which it does
+     * before painting anything else. Once this returns nothing of this rendering's touches the pixels again, so the
+     * next rendering can paint into the same ones.
+     */
+    public void stop() {
+        scheduler.cancel(cancellation);
+        metrics.cancelled();
+        synchronized (running) {
+            while (running.get() > 0) {
                 try {
-                    calculators.submit(workQueue.take());
+                    running.wait();
                 } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
                 }
             }
-        });
+        }
+    }
+
+    public Rendering startRendering() {
+        int reused = 0;
+        if (previous != null) {
+            previous.preview(viewport, pixels);
+            reused = previous.reuse(this);
+            smooth.update(buffer, 0, 0, viewport.width, viewport.height);
+            listener.painted(0, 0, viewport.width, viewport.height);
+        }
+        // tile corners sit on multiples of TILE_SIZE in grid coordinates, or in pixels when there's no grid
+        originX = aligned ? viewport.gridX(0) : 0;
+        originY = aligned ? viewport.gridY(0) : 0;
+        final long firstColumn = floorDiv(originX, TILE_SIZE), firstRow = floorDiv(originY, TILE_SIZE);
+        tileColumns = (int) (floorDiv(originX + viewport.width - 1, TILE_SIZE) - firstColumn + 1);
+        final int tileRows = (int) (floorDiv(originY + viewport.height - 1, TILE_SIZE) - firstRow + 1);
+        final List<Tile> ordered = new ArrayList<>();
+        final Tile[] grid = new Tile[tileColumns * tileRows];
+        for (int row = 0; row < tileRows; row++) {
+            for (int column = 0; column < tileColumns; column++) {
+                final int x0 = (int) ((firstColumn + column) * TILE_SIZE - originX);
+                final int y0 = (int) ((firstRow + row) * TILE_SIZE - originY);
+                final boolean inside = x0 >= 0 && y0 >= 0
+                        && x0 + TILE_SIZE <= viewport.width && y0 + TILE_SIZE <= viewport.height;
+                final TileCache.Key key = cache != null && inside ? new TileCache.Key(
+                        renderParameters.fractal.name(), tier, viewport.delta, renderParameters.bailout,
+                        firstColumn + column, firstRow + row) : null;
+                final boolean previewed = previous != null && previous.covers(viewport, max(x0, 0), max(y0, 0),
+                        min(x0 + TILE_SIZE, viewport.width) - 1, min(y0 + TILE_SIZE, viewport.height) - 1);
+                final Tile tile = new Tile(x0, y0, key, previewed);
+                grid[row * tileColumns + column] = tile;
+                ordered.add(tile);
+            }
+        }
+        tiles = grid;
+        final int centreX = viewport.width / 2 - TILE_SIZE / 2, centreY = viewport.height / 2 - TILE_SIZE / 2;
+        ordered.sort(Comparator.comparingInt(tile -> abs(tile.x0 - centreX) + abs(tile.y0 - centreY)));
+        tilesLeft.set(ordered.size());
+        progress.addAndGet(reused);
+        for (int rank = 0; rank < ordered.size(); rank++) {
+            final Tile tile = ordered.get(rank);
+            tile.rank = rank;
+            final boolean known = isKnown(tile);
+            final IterationBuffer cached = tile.key == null || known ? null : cache.get(tile.key);
+            if (cached != null) {
+                schedule((-1 << 24) + rank, () -> paintCached(tile, cached));
+            } else if (known) {
+                schedule((-1 << 24) + rank, () -> paintKnown(tile));
+            } else {
+                scheduleLevel(tile, TOP_LEVEL);
+            }
+        }
         return this;
     }
 
+    /**
+     * Tell {@code listener} about everything painted and counted from now on. Set it before starting.
+     */
+    public void setListener(RenderListener listener) {
+        this.listener = listener;
+    }
+
     public Complex whereWasClick(MouseEvent event) {
-        double newCenterX = topLeft.real + delta * event.getX();
-        double newCenterY = topLeft.imaginary + delta * event.getY();
-        return new Complex(newCenterX, newCenterY);
+        return viewport.pointAt(event.getX(), event.getY());
     }
 
+    public BigComplex whereWasClickPrecisely(MouseEvent event) {
+        return viewport.precisePointAt(event.getX(), event.getY());
+    }
+
+    /**
+     * Tile refinement steps waiting to run.
+     */
     public int getQueueLength() {
-        return workQueue.size();
+        return queueLength.get();
     }
 
     public Histogram getHistogram() {
         return iterationHistogram;
     }
 
-    static abstract class PrioritizedRunnable implements Runnable, Comparable<PrioritizedRunnable> {
-        private final int priority;
+    /**
+     * Colour with {@code palette} from now on, equalised or not, and recolour every point already known. Points only
+     * painted as part of a coarser block so far pick up the new colours as they're refined.
+     */
+    public void setColouring(Palette palette, boolean equalise) {
+        this.palette = palette;
+        this.equalise = equalise;
+        recolour();
+    }
 
-        public PrioritizedRunnable(int priority) {
-            this.priority = priority;
-        }
+    /**
+     * How points are being coloured at the moment.
+     */
+    public ColourMap getColours() {
+        return colours;
+    }
 
-        @Override
-        public int compareTo(PrioritizedRunnable o) {
-            return this.priority - o.priority;
+    private void recolour() {
+        final ColourMap recolouring = equalise ? palette.equalised(iterationHistogram) : palette;
+        colours = recolouring;
+        final int[] iterations = buffer.iterations;
+        final float[] values = smooth.values;
+        for (int i = 0; i < iterations.length; i++) {
+            if (iterations[i] >= 0) {
+                pixels.pixels[i] = recolouring.argb(values[i]);
+            }
         }
+        listener.painted(0, 0, viewport.width, viewport.height);
     }
 
-    private Runnable taskForPosition(
-            int xPixel, int yPixel, int scale, final boolean doneTopLeft, int suggestedPriority) {
-        return new PrioritizedRunnable(suggestedPriority) {
-            @Override
-            public void run() {
-                int priority = suggestedPriority;
-                if (!doneTopLeft) {
-                    priority = calculatePoint(xPixel, yPixel, scale);
-                }
-                if (scale <= 1) {
-                    return;
+    /**
+     * The cache this rendering uses, or null if it doesn't.
+     */
+    public TileCache getCache() {
+        return cache;
+    }
+
+    Viewport getViewport() {
+        return viewport;
+    }
+
+    boolean isAligned() {
+        return aligned;
+    }
+
+    PrecisionTier getTier() {
+        return tier;
+    }
+
+    /**
+     * Real parts of z where each point stopped, NaN where it isn't known, or null if this rendering can't resume, its
+     * kernel not being a {@link ResumablePixelKernel}.
+     */
+    double[] getOrbitX() {
+        return orbitX;
+    }
+
+    double[] getOrbitY() {
+        return orbitY;
+    }
+
+    /**
+     * Iterations already done for points to be carried on from {@link #getOrbitX}, or null if this rendering can't
+     * resume.
+     */
+    int[] getResumeFrom() {
+        return resumeFrom;
+    }
+
+    IterationBuffer getBuffer() {
+        return buffer;
+    }
+
+    PixelBuffer getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Whether a pixel's tile has been finished at full resolution, so that its iteration data is final.
+     */
+    boolean isFinished(int x, int y) {
+        final Tile[] grid = tiles;
+        final long column = floorDiv(originX + x, TILE_SIZE) - floorDiv(originX, TILE_SIZE);
+        final long row = floorDiv(originY + y, TILE_SIZE) - floorDiv(originY, TILE_SIZE);
+        final long index = row * tileColumns + column;
+        return index >= 0 && index < grid.length && grid[(int) index].finished;
+    }
+
+    private void schedule(int priority, Runnable task) {
+        queueLength.incrementAndGet();
+        scheduler.submit(cancellation, priority, metrics.track(() -> {
+            // counted before looking at the token, so that stop() either sees it running or it sees the cancel
+            running.incrementAndGet();
+            try {
+                if (!cancellation.isCancelled()) {
+                    task.run();
                 }
-                int newScale = scale / 2;
-
-                workQueue.add(taskForPosition(xPixel, yPixel, newScale, true, priority));
-                int newX = xPixel + newScale;
-                int newY = yPixel + newScale;
-                if (newX < imageSize.width) {
-                    workQueue.add(taskForPosition(newX, yPixel, newScale, false, priority));
-                    if (newY < imageSize.height) {
-                        workQueue.add(taskForPosition(newX, newY, newScale, false, priority));
+            } finally {
+                if (running.decrementAndGet() == 0) {
+                    synchronized (running) {
+                        running.notifyAll();
                     }
                 }
-                if (newY < imageSize.height) {
-                    workQueue.add(taskForPosition(xPixel, newY, newScale, false, priority));
-                }
             }
-        };
+        })).whenComplete((done, failure) -> queueLength.decrementAndGet());
     }
 
-    private int calculatePoint(int xPixel, int yPixel, int scale) {
-        final double cx = topLeft.real + delta * xPixel;
-        final double cy = topLeft.imaginary + delta * yPixel;
+    private void scheduleLevel(Tile tile, int level) {
+        schedule(((TOP_LEVEL - level) << 24) + tile.rank, () -> refine(tile, level));
+    }
 
-        final IterationResult iterationResult = IterationResult.of(cx, cy, renderParameters.bailout);
-        final Color color = colorForResult(iterationResult);
-        painter.submit(pointColoringTask(xPixel, yPixel, color, scale));
-        iterationHistogram.increment(iterationResult.iterations);
-        return iterationResult.iterations;
+    /**
+     * Whether a point's iteration data is already in the buffer, taken over from the previous rendering.
+     */
+    private boolean isReused(int x, int y) {
+        return x >= 0 && y >= 0 && buffer.iterations[y * viewport.width + x] >= 0;
     }
 
-    private Runnable pointColoringTask(int xPixel, int yPixel, Color color, int scale) {
-        return () -> {
-            final int width = max(0, min(scale, imageSize.width - xPixel));
-            final int height = max(0, min(scale, imageSize.height - yPixel));
-            graphics.setColor(color);
-            graphics.fillRect(xPixel, yPixel, width, height);
-            progress.incrementAndGet();
-        };
+    /**
+     * Whether every pixel of a tile that's in the image was taken over from the previous rendering.
+     */
+    private boolean isKnown(Tile tile) {
+        for (int y = max(tile.y0, 0); y < min(tile.y0 + TILE_SIZE, viewport.height); y++) {
+            for (int x = max(tile.x0, 0); x < min(tile.x0 + TILE_SIZE, viewport.width); x++) {
+                if (!isReused(x, y)) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
-    private Color colorForResult(final IterationResult result) {
-        if (result.iterations < renderParameters.bailout) {
-            final double zn = sqrt(result.xSquared + result.ySquared);
-            final double nu = log(log(zn) / log(2)) / log(2);
-            final double fIteration = result.iterations + 1 - nu;
+    private void paintCached(Tile tile, IterationBuffer cached) {
+        final long start = System.nanoTime();
+        int points = 0;
+        for (int y = 0; y < TILE_SIZE; y++) {
+            final int offset = (tile.y0 + y) * viewport.width + tile.x0;
+            for (int x = 0; x < TILE_SIZE; x++) {
+                if (buffer.iterations[offset + x] < 0) {
+                    points++;
+                }
+            }
+            System.arraycopy(cached.iterations, y * TILE_SIZE, buffer.iterations, offset, TILE_SIZE);
+            System.arraycopy(cached.modulusSquared, y * TILE_SIZE, buffer.modulusSquared, offset, TILE_SIZE);
+        }
+        paint(tile);
+        metrics.tile(tile.x0, tile.y0, TILE_SIZE, TILE_SIZE, 0, 0, start);
+        progress.addAndGet(points);
+        tileFinished(tile);
+    }
+
+    private void paintKnown(Tile tile) {
+        final long start = System.nanoTime();
+        final int left = max(tile.x0, 0), top = max(tile.y0, 0);
+        paint(tile);
+        metrics.tile(left, top, min(tile.x0 + TILE_SIZE, viewport.width) - left,
+                min(tile.y0 + TILE_SIZE, viewport.height) - top, 0, 0, start);
+        tileFinished(tile);
+    }
 
-            final int blue = sawtooth(fIteration / 3);
-            final int red = sawtooth(fIteration);
-            final int green = sawtooth(fIteration / 31);
-            return new Color(red, green, blue);
-        } else {
-            return Color.BLACK;
+    /**
+     * Colour the part of a tile inside the image from the iteration buffer.
+     */
+    private void paint(Tile tile) {
+        final int left = max(tile.x0, 0), top = max(tile.y0, 0);
+        final int right = min(tile.x0 + TILE_SIZE, viewport.width);
+        final int bottom = min(tile.y0 + TILE_SIZE, viewport.height);
+        smooth.update(buffer, left, top, right - left, bottom - top);
+        smooth.colour(left, top, right - left, bottom - top, colours, pixels);
+        final RenderListener listening = listener;
+        for (int y = top; y < bottom; y++) {
+            for (int i = y * viewport.width + left, end = y * viewport.width + right; i < end; i++) {
+                iterationHistogram.increment(buffer.iterations[i]);
+                listening.counted(buffer.iterations[i]);
+            }
         }
+        listening.painted(left, top, right - left, bottom - top);
+    }
 
+    private void refine(Tile tile, int level) {
+        final long start = System.nanoTime();
+        final int x0 = tile.x0, y0 = tile.y0;
+        final int width = viewport.width;
+        final int stride = 1 << level;
+        final int block = tile.previewed ? 1 : stride;
+        final int right = min(x0 + TILE_SIZE, width);
+        final int bottom = min(y0 + TILE_SIZE, viewport.height);
+        final int bailout = renderParameters.bailout;
+        final ColourMap colouring = colours;
+        final RenderListener listening = listener;
+        final int[] iterations = new int[TILE_SIZE];
+        final int[] alreadyDone = new int[TILE_SIZE];
+        final double[] modulusSquared = new double[TILE_SIZE];
+        final double[] zx = new double[TILE_SIZE];
+        final double[] zy = new double[TILE_SIZE];
+        final int[] runIterations = new int[TILE_SIZE];
+        final double[] runModulusSquared = new double[TILE_SIZE];
+        final double[] runZx = new double[TILE_SIZE];
+        final double[] runZy = new double[TILE_SIZE];
+        int computed = 0;
+        int points = 0;
+        long totalIterations = 0;
+        // skip points above or left of the image unless their block reaches into it
+        for (int y = y0; y < bottom; y += stride) {
+            if (cancellation.isCancelled()) {
+                return;
+            }
+            if (y + block <= 0) {
+                continue;
+            }
+            final boolean doneAtCoarserLevel = level < TOP_LEVEL && ((y - y0) & ((stride << 1) - 1)) == 0;
+            final int step = doneAtCoarserLevel ? stride << 1 : stride;
+            int first = doneAtCoarserLevel ? x0 + stride : x0;
+            if (first + block <= 0) {
+                first += (-first - block) / step * step + step;
+            }
+            if (first >= right) {
+                continue;
+            }
+            final int count = (right - first + step - 1) / step;
+            // points taken over from the previous rendering are read back, runs of the rest are computed
+            for (int i = 0; i < count; ) {
+                if (cancellation.isCancelled()) {
+                    return;
+                }
+                final int x = first + i * step;
+                if (isReused(x, y)) {
+                    iterations[i] = buffer.iterations[y * width + x];
+                    alreadyDone[i] = iterations[i];
+                    modulusSquared[i] = buffer.modulusSquared[y * width + x];
+                    i++;
+                    continue;
+                }
+                int end = i + 1;
+                while (end < count && !isReused(first + end * step, y)) {
+                    end++;
+                }
+                if (resumeFrom != null) {
+                    // fresh points go through resume too, for the z that lets a higher bailout carry them on later
+                    for (int j = i; j < end; j++) {
+                        final int point = first + j * step;
+                        final int from = point >= 0 && y >= 0 ? resumeFrom[y * width + point] : 0;
+                        runIterations[j - i] = from;
+                        alreadyDone[j] = from;
+                        if (from > 0) {
+                            runZx[j - i] = orbitX[y * width + point];
+                            runZy[j - i] = orbitY[y * width + point];
+                        }
+                    }
+                    ((ResumablePixelKernel) kernel).resume(x, y, step, 0, end - i, runIterations, runZx, runZy,
+                            runModulusSquared);
+                    System.arraycopy(runZx, 0, zx, i, end - i);
+                    System.arraycopy(runZy, 0, zy, i, end - i);
+                } else {
+                    Arrays.fill(alreadyDone, i, end, 0);
+                    kernel.iterate(x, y, step, 0, end - i, runIterations, runModulusSquared);
+                }
+                System.arraycopy(runIterations, 0, iterations, i, end - i);
+                System.arraycopy(runModulusSquared, 0, modulusSquared, i, end - i);
+                computed += end - i;
+                i = end;
+            }
+            for (int i = 0; i < count; i++) {
+                if (cancellation.isCancelled()) {
+                    return;
+                }
+                final int x = first + i * step;
+                final int left = max(x, 0), top = max(y, 0);
+                final float smoothIterations = Coloring.smooth(iterations[i], modulusSquared[i], bailout);
+                pixels.fill(left, top, min(x + block, right) - left, min(y + block, bottom) - top,
+                        colouring.argb(smoothIterations));
+                if (x >= 0 && y >= 0) {
+                    smooth.values[y * width + x] = smoothIterations;
+                    iterationHistogram.increment(iterations[i]);
+                    listening.counted(iterations[i]);
+                    if (!isReused(x, y)) {
+                        buffer.modulusSquared[y * width + x] = modulusSquared[i];
+                        if (orbitX != null) {
+                            orbitX[y * width + x] = zx[i];
+                            orbitY[y * width + x] = zy[i];
+                        }
+                        buffer.iterations[y * width + x] = iterations[i];
+                        points++;
+                    }
+                }
+                totalIterations += iterations[i] - alreadyDone[i];
+            }
+        }
+        metrics.tile(max(x0, 0), max(y0, 0), right - max(x0, 0), bottom - max(y0, 0), computed, totalIterations,
+                start);
+        listening.painted(max(x0, 0), max(y0, 0), right - max(x0, 0), bottom - max(y0, 0));
+        progress.addAndGet(points);
+        if (level > 0) {
+            scheduleLevel(tile, level - 1);
+            return;
+        }
+        if (tile.key != null) {
+            final IterationBuffer data = new IterationBuffer(TILE_SIZE, TILE_SIZE, bailout);
+            for (int y = 0; y < TILE_SIZE; y++) {
+                System.arraycopy(buffer.iterations, (y0 + y) * width + x0, data.iterations, y * TILE_SIZE, TILE_SIZE);
+                System.arraycopy(buffer.modulusSquared, (y0 + y) * width + x0, data.modulusSquared, y * TILE_SIZE,
+                        TILE_SIZE);
+            }
+            cache.put(tile.key, data);
+        }
+        tileFinished(tile);
     }
 
-    private static int sawtooth(double v) {
-        return abs(((int) v & 0x1FE) - 0xFF);
+    private void tileFinished(Tile tile) {
+        tile.finished = true;
+        if (tilesLeft.decrementAndGet() == 0) {
+            if (equalise) {
+                recolour();
+            }
+            metrics.completed();
+        }
     }
 
     public double getWidth() {
         return renderParameters.width;
     }
 
+    public RenderParameters getRenderParameters() {
+        return renderParameters;
+    }
+
     public int getProgress() {
         return progress.get();
     }
+
+    public RenderMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * One tile's place in the image, its key in the cache if it's to be cached, and whether the preview covers it.
+     */
+    private static final class Tile {
+        final int x0;
+        final int y0;
+        final TileCache.Key key;
+        final boolean previewed;
+        int rank;
+        volatile boolean finished;
+
+        Tile(int x0, int y0, TileCache.Key key, boolean previewed) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.key = key;
+            this.previewed = previewed;
+        }
+    }
 }
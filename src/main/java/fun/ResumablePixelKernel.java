@@ -0,0 +1,16 @@
+package fun;
+
+/**
+ * A {@link PixelKernel} that can also carry points on from where an earlier call left them, so that points stopped
+ * at one bailout can be taken on to a higher one.
+ */
+public interface ResumablePixelKernel extends PixelKernel {
+
+    /**
+     * Like {@link #iterate}, but carrying each point on from the count and z in {@code iterations}, {@code zx} and
+     * {@code zy}, and leaving where it stopped there. A count of 0 starts a point afresh, whatever z says. See
+     * {@link BatchKernel#resume}.
+     */
+    void resume(int x, int y, int stepX, int stepY, int count, int[] iterations, double[] zx, double[] zy,
+                double[] modulusSquared);
+}
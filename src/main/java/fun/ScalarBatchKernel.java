@@ -0,0 +1,137 @@
+package fun;
+
+/**
+ * Plain Java 8 batch kernel. Points are iterated in pairs so that their two independent multiply chains can overlap
+ * in the CPU pipeline, which is worth most of a factor of two over one point at a time. Each lane has an active flag;
+ * once a lane has escaped or hit the bailout it is masked off and frozen while the other one finishes.
+ */
+public final class ScalarBatchKernel implements BatchKernel {
+
+    @Override
+    public void iterate(double[] cx, double[] cy, int count, int bailout, int[] iterations, double[] modulusSquared) {
+        int i = 0;
+        for (; i + 1 < count; i += 2) {
+            final double ax = cx[i], ay = cy[i];
+            final double bx = cx[i + 1], by = cy[i + 1];
+            double zx = ax, zy = ay, zxSquared = zx * zx, zySquared = zy * zy;
+            double wx = bx, wy = by, wxSquared = wx * wx, wySquared = wy * wy;
+            int n = 0, m = 0;
+            boolean activeA = true, activeB = true;
+            while (true) {
+                activeA = activeA && n < bailout && (zxSquared + zySquared) < 4.0;
+                activeB = activeB && m < bailout && (wxSquared + wySquared) < 4.0;
+                if (!(activeA || activeB)) {
+                    break;
+                }
+                if (activeA) {
+                    zy = 2 * zx * zy + ay;
+                    zx = zxSquared - zySquared + ax;
+                    n++;
+                    zxSquared = zx * zx;
+                    zySquared = zy * zy;
+                }
+                if (activeB) {
+                    wy = 2 * wx * wy + by;
+                    wx = wxSquared - wySquared + bx;
+                    m++;
+                    wxSquared = wx * wx;
+                    wySquared = wy * wy;
+                }
+            }
+            iterations[i] = n;
+            modulusSquared[i] = zxSquared + zySquared;
+            iterations[i + 1] = m;
+            modulusSquared[i + 1] = wxSquared + wySquared;
+        }
+        if (i < count) {
+            iterateOne(cx, cy, i, bailout, iterations, modulusSquared);
+        }
+    }
+
+    /**
+     * Like {@link #iterate}, in pairs, but carrying on from and leaving behind each point's z.
+     */
+    @Override
+    public void resume(double[] cx, double[] cy, int count, int bailout, int[] iterations, double[] zx, double[] zy,
+                       double[] modulusSquared) {
+        int i = 0;
+        for (; i + 1 < count; i += 2) {
+            final double ax = cx[i], ay = cy[i];
+            final double bx = cx[i + 1], by = cy[i + 1];
+            double ux = zx[i], uy = zy[i], uxSquared = ux * ux, uySquared = uy * uy;
+            double wx = zx[i + 1], wy = zy[i + 1], wxSquared = wx * wx, wySquared = wy * wy;
+            int n = iterations[i], m = iterations[i + 1];
+            boolean activeA = true, activeB = true;
+            while (true) {
+                activeA = activeA && n < bailout && (uxSquared + uySquared) < 4.0;
+                activeB = activeB && m < bailout && (wxSquared + wySquared) < 4.0;
+                if (!(activeA || activeB)) {
+                    break;
+                }
+                if (activeA) {
+                    uy = 2 * ux * uy + ay;
+                    ux = uxSquared - uySquared + ax;
+                    n++;
+                    uxSquared = ux * ux;
+                    uySquared = uy * uy;
+                }
+                if (activeB) {
+                    wy = 2 * wx * wy + by;
+                    wx = wxSquared - wySquared + bx;
+                    m++;
+                    wxSquared = wx * wx;
+                    wySquared = wy * wy;
+                }
+            }
+            iterations[i] = n;
+            zx[i] = ux;
+            zy[i] = uy;
+            modulusSquared[i] = uxSquared + uySquared;
+            iterations[i + 1] = m;
+            zx[i + 1] = wx;
+            zy[i + 1] = wy;
+            modulusSquared[i + 1] = wxSquared + wySquared;
+        }
+        if (i < count) {
+            resumeOne(cx, cy, i, bailout, iterations, zx, zy, modulusSquared);
+        }
+    }
+
+    static void resumeOne(double[] cx, double[] cy, int i, int bailout, int[] iterations, double[] zx, double[] zy,
+                          double[] modulusSquared) {
+        final double ax = cx[i], ay = cy[i];
+        double x = zx[i], y = zy[i], xSquared = x * x, ySquared = y * y;
+        int n = iterations[i];
+        while (n < bailout && (xSquared + ySquared) < 4.0) {
+            y = 2 * x * y + ay;
+            x = xSquared - ySquared + ax;
+            n++;
+            xSquared = x * x;
+            ySquared = y * y;
+        }
+        iterations[i] = n;
+        zx[i] = x;
+        zy[i] = y;
+        modulusSquared[i] = xSquared + ySquared;
+    }
+
+    static void iterateOne(double[] cx, double[] cy, int i, int bailout, int[] iterations, double[] modulusSquared) {
+        final double ax = cx[i], ay = cy[i];
+        double zx = ax, zy = ay, zxSquared = zx * zx, zySquared = zy * zy;
+        int n = 0;
+        while (n < bailout && (zxSquared + zySquared) < 4.0) {
+            zy = 2 * zx * zy + ay;
+            zx = zxSquared - zySquared + ax;
+            n++;
+            zxSquared = zx * zx;
+            zySquared = zy * zy;
+        }
+        iterations[i] = n;
+        modulusSquared[i] = zxSquared + zySquared;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
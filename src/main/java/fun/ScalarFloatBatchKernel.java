@@ -0,0 +1,68 @@
+package fun;
+
+/**
+ * Plain Java 8 float kernel, iterating points in masked pairs like {@link ScalarBatchKernel}.
+ */
+public final class ScalarFloatBatchKernel implements FloatBatchKernel {
+
+    @Override
+    public void iterate(float[] cx, float[] cy, int count, int bailout, int[] iterations, double[] modulusSquared) {
+        int i = 0;
+        for (; i + 1 < count; i += 2) {
+            final float ax = cx[i], ay = cy[i];
+            final float bx = cx[i + 1], by = cy[i + 1];
+            float zx = ax, zy = ay, zxSquared = zx * zx, zySquared = zy * zy;
+            float wx = bx, wy = by, wxSquared = wx * wx, wySquared = wy * wy;
+            int n = 0, m = 0;
+            boolean activeA = true, activeB = true;
+            while (true) {
+                activeA = activeA && n < bailout && (zxSquared + zySquared) < 4.0f;
+                activeB = activeB && m < bailout && (wxSquared + wySquared) < 4.0f;
+                if (!(activeA || activeB)) {
+                    break;
+                }
+                if (activeA) {
+                    zy = 2 * zx * zy + ay;
+                    zx = zxSquared - zySquared + ax;
+                    n++;
+                    zxSquared = zx * zx;
+                    zySquared = zy * zy;
+                }
+                if (activeB) {
+                    wy = 2 * wx * wy + by;
+                    wx = wxSquared - wySquared + bx;
+                    m++;
+                    wxSquared = wx * wx;
+                    wySquared = wy * wy;
+                }
+            }
+            iterations[i] = n;
+            modulusSquared[i] = zxSquared + zySquared;
+            iterations[i + 1] = m;
+            modulusSquared[i + 1] = wxSquared + wySquared;
+        }
+        if (i < count) {
+            iterateOne(cx, cy, i, bailout, iterations, modulusSquared);
+        }
+    }
+
+    static void iterateOne(float[] cx, float[] cy, int i, int bailout, int[] iterations, double[] modulusSquared) {
+        final float ax = cx[i], ay = cy[i];
+        float zx = ax, zy = ay, zxSquared = zx * zx, zySquared = zy * zy;
+        int n = 0;
+        while (n < bailout && (zxSquared + zySquared) < 4.0f) {
+            zy = 2 * zx * zy + ay;
+            zx = zxSquared - zySquared + ax;
+            n++;
+            zxSquared = zx * zx;
+            zySquared = zy * zy;
+        }
+        iterations[i] = n;
+        modulusSquared[i] = zxSquared + zySquared;
+    }
+
+    @Override
+    public String name() {
+        return "scalar-float";
+    }
+}
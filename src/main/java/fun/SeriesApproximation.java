@@ -0,0 +1,109 @@
+package fun;
+
+/**
+ * Skips the first iterations of every pixel in a perturbed view at once.
+ *
+ * Near the reference, the perturbation after n iterations is very nearly a polynomial in the pixel's offset dc:
+ * delta(n) = A(n) dc + B(n) dc^2 + C(n) dc^3. The coefficients are iterated alongside the reference orbit, scaled by
+ * powers of the view's radius so that they stay within double range however deep the view is. Iteration stops at
+ * the first step where the truncated series strays from exactly perturbed probe points around the edge of the view,
+ * or where some pixel might already have escaped.
+ */
+public final class SeriesApproximation {
+    private static final int PROBES = 8;
+    private static final double TOLERANCE = 1e-10;
+
+    public static final SeriesApproximation NONE = new SeriesApproximation(0, 0, 0, 0, 0, 0, 0, 1);
+
+    private final int skip;
+    private final double ar, ai, br, bi, cr, ci;
+    private final double radius;
+
+    private SeriesApproximation(int skip, double ar, double ai, double br, double bi, double cr, double ci,
+                                double radius) {
+        this.skip = skip;
+        this.ar = ar;
+        this.ai = ai;
+        this.br = br;
+        this.bi = bi;
+        this.cr = cr;
+        this.ci = ci;
+        this.radius = radius;
+    }
+
+    /**
+     * @param radius the largest |dc| of any pixel in the view
+     * @param maxSkip never skip more iterations than this
+     */
+    public static SeriesApproximation compute(ReferenceOrbit reference, double radius, int maxSkip) {
+        final double[] ux = new double[PROBES], uy = new double[PROBES];
+        final double[] dx = new double[PROBES], dy = new double[PROBES];
+        for (int p = 0; p < PROBES; p++) {
+            ux[p] = Math.cos(2 * Math.PI * p / PROBES);
+            uy[p] = Math.sin(2 * Math.PI * p / PROBES);
+        }
+        double ar = 0, ai = 0, br = 0, bi = 0, cr = 0, ci = 0;
+        int skip = 0;
+        final int limit = Math.min(reference.last() - 1, maxSkip);
+        for (int n = 0; n < limit; n++) {
+            final double zr = 2 * reference.real(n), zi = 2 * reference.imaginary(n);
+            final double nar = zr * ar - zi * ai + radius;
+            final double nai = zr * ai + zi * ar;
+            final double nbr = zr * br - zi * bi + (ar * ar - ai * ai);
+            final double nbi = zr * bi + zi * br + 2 * ar * ai;
+            final double ncr = zr * cr - zi * ci + 2 * (ar * br - ai * bi);
+            final double nci = zr * ci + zi * cr + 2 * (ar * bi + ai * br);
+            if (!(Double.isFinite(nar) && Double.isFinite(nai) && Double.isFinite(nbr) && Double.isFinite(nbi)
+                    && Double.isFinite(ncr) && Double.isFinite(nci))) {
+                break;
+            }
+            final double referenceModulus = Math.hypot(reference.real(n + 1), reference.imaginary(n + 1));
+            if (referenceModulus + Math.hypot(nar, nai) + Math.hypot(nbr, nbi) + Math.hypot(ncr, nci) >= 2) {
+                break;
+            }
+            boolean accurate = true;
+            for (int p = 0; p < PROBES; p++) {
+                final double dcx = radius * ux[p], dcy = radius * uy[p];
+                final double px = dx[p], py = dy[p];
+                dx[p] = zr * px - zi * py + (px * px - py * py) + dcx;
+                dy[p] = zr * py + zi * px + 2 * px * py + dcy;
+                final double u2x = ux[p] * ux[p] - uy[p] * uy[p], u2y = 2 * ux[p] * uy[p];
+                final double u3x = u2x * ux[p] - u2y * uy[p], u3y = u2x * uy[p] + u2y * ux[p];
+                final double ex = nar * ux[p] - nai * uy[p] + nbr * u2x - nbi * u2y + ncr * u3x - nci * u3y;
+                final double ey = nar * uy[p] + nai * ux[p] + nbr * u2y + nbi * u2x + ncr * u3y + nci * u3x;
+                if (Math.hypot(ex - dx[p], ey - dy[p]) > TOLERANCE * Math.hypot(dx[p], dy[p])) {
+                    accurate = false;
+                }
+            }
+            if (!accurate) {
+                break;
+            }
+            ar = nar;
+            ai = nai;
+            br = nbr;
+            bi = nbi;
+            cr = ncr;
+            ci = nci;
+            skip = n + 1;
+        }
+        return new SeriesApproximation(skip, ar, ai, br, bi, cr, ci, radius);
+    }
+
+    /**
+     * The number of iterations every pixel can skip.
+     */
+    public int skip() {
+        return skip;
+    }
+
+    /**
+     * Writes the real and imaginary parts of the perturbation after {@link #skip()} iterations for offset dc.
+     */
+    void deltaAt(double dcx, double dcy, double[] delta) {
+        final double ux = dcx / radius, uy = dcy / radius;
+        final double u2x = ux * ux - uy * uy, u2y = 2 * ux * uy;
+        final double u3x = u2x * ux - u2y * uy, u3y = u2x * uy + u2y * ux;
+        delta[0] = ar * ux - ai * uy + br * u2x - bi * u2y + cr * u3x - ci * u3y;
+        delta[1] = ar * uy + ai * ux + br * u2y + bi * u2x + cr * u3y + ci * u3x;
+    }
+}
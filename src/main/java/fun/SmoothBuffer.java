@@ -0,0 +1,54 @@
+package fun;
+
+import java.util.Arrays;
+
+/**
+ * Smooth iteration counts for every pixel of an image, row by row, worked out once from an {@link IterationBuffer}
+ * so that colouring and recolouring it is just a {@link ColourMap} lookup per pixel. Pixels not yet known, and those
+ * inside the set, are negative.
+ */
+public final class SmoothBuffer {
+    public final int width;
+    public final int height;
+    public final float[] values;
+
+    public SmoothBuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.values = new float[width * height];
+        Arrays.fill(values, -1);
+    }
+
+    public static SmoothBuffer of(IterationBuffer source) {
+        final SmoothBuffer smooth = new SmoothBuffer(source.width, source.height);
+        smooth.update(source, 0, 0, source.width, source.height);
+        return smooth;
+    }
+
+    /**
+     * Work out a rectangle from the same place in {@code source}, which should be the same size as this.
+     */
+    public void update(IterationBuffer source, int x, int y, int w, int h) {
+        final int right = Math.min(x + w, width);
+        final int bottom = Math.min(y + h, height);
+        for (int row = y; row < bottom; row++) {
+            for (int i = row * width + x, end = row * width + right; i < end; i++) {
+                values[i] = source.iterations[i] < 0 ? -1
+                        : Coloring.smooth(source.iterations[i], source.modulusSquared[i], source.bailout);
+            }
+        }
+    }
+
+    /**
+     * Colour a rectangle of this buffer into the same place in {@code pixels}.
+     */
+    public void colour(int x, int y, int w, int h, ColourMap colours, PixelBuffer pixels) {
+        final int right = Math.min(x + w, width);
+        final int bottom = Math.min(y + h, height);
+        for (int row = y; row < bottom; row++) {
+            for (int i = row * width + x, end = row * width + right; i < end; i++) {
+                pixels.pixels[i] = colours.argb(values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package fun;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive anti-aliasing for a finished render: only pixels whose smooth iteration count, as coloured, breaks
+ * sharply from its neighbours' get supersampled, which is where the boundary of the set and its filaments are.
+ * Everywhere else colours change evenly enough that one sample per pixel already looks smooth. Judging by colour
+ * rather than by iterations takes in how fast the palette cycles.
+ *
+ * A pixel that needs it is sampled on an n by n grid across its area and coloured with the average. The grid's first
+ * point is the pixel's own sample, so each costs n^2 - 1 extra samples, iterated by a kernel for the same view at n
+ * times the resolution.
+ */
+public final class Supersampler {
+    /**
+     * How far, in levels out of 255 on any channel, a pixel's colour has to be from the average of the neighbours
+     * either side of it to get supersampled.
+     */
+    public static final int EDGE = 24;
+
+    private final PixelKernel fineKernel;
+    private final int factor;
+    private final SmoothBuffer smooth;
+    private final int bailout;
+    private final LongAdder supersampledPixels = new LongAdder();
+    private final LongAdder extraSamples = new LongAdder();
+
+    /**
+     * @param fineKernel a kernel for the same view at {@code factor} times the width and height
+     * @param smooth     the render's smooth iteration counts, which are left as they are
+     */
+    public Supersampler(PixelKernel fineKernel, int factor, SmoothBuffer smooth, int bailout) {
+        this.fineKernel = fineKernel;
+        this.factor = factor;
+        this.smooth = smooth;
+        this.bailout = bailout;
+    }
+
+    /**
+     * Recolour the pixels of row {@code y} that need it from their supersamples.
+     */
+    public void row(int y, ColourMap colours, PixelBuffer pixels) {
+        final int[] iterations = new int[factor];
+        final double[] modulusSquared = new double[factor];
+        int rowPixels = 0;
+        for (int x = 0; x < smooth.width; x++) {
+            if (!isEdge(x, y, colours)) {
+                continue;
+            }
+            int red = 0, green = 0, blue = 0;
+            for (int j = 0; j < factor; j++) {
+                // the top left sample is the pixel itself, already known
+                final int first = j == 0 ? 1 : 0;
+                fineKernel.iterate(x * factor + first, y * factor + j, 1, 0, factor - first, iterations,
+                        modulusSquared);
+                for (int i = -first; i < factor - first; i++) {
+                    final int argb = i < 0 ? colours.argb(smooth.values[y * smooth.width + x])
+                            : colours.argb(Coloring.smooth(iterations[i], modulusSquared[i], bailout));
+                    red += (argb >> 16) & 0xff;
+                    green += (argb >> 8) & 0xff;
+                    blue += argb & 0xff;
+                }
+            }
+            final int samples = factor * factor;
+            pixels.set(x, y, 0xff000000 | (red + samples / 2) / samples << 16
+                    | (green + samples / 2) / samples << 8 | (blue + samples / 2) / samples);
+            rowPixels++;
+        }
+        supersampledPixels.add(rowPixels);
+        extraSamples.add((long) rowPixels * (factor * factor - 1));
+    }
+
+    /**
+     * Whether a pixel is inside the set and a neighbour isn't, or the other way round, or its colour is far from the
+     * average of its neighbours' either side of it. Even gradients, steep or not, don't count.
+     */
+    boolean isEdge(int x, int y, ColourMap colours) {
+        final int width = smooth.width;
+        final float value = smooth.values[y * width + x];
+        final float left = smooth.values[y * width + Math.max(0, x - 1)];
+        final float right = smooth.values[y * width + Math.min(width - 1, x + 1)];
+        final float up = smooth.values[Math.max(0, y - 1) * width + x];
+        final float down = smooth.values[Math.min(smooth.height - 1, y + 1) * width + x];
+        if (value < 0 || left < 0 || right < 0 || up < 0 || down < 0) {
+            return !(value < 0 && left < 0 && right < 0 && up < 0 && down < 0);
+        }
+        final int argb = colours.argb(value);
+        return bends(colours.argb(left), argb, colours.argb(right)) || bends(colours.argb(up), argb, colours.argb(down));
+    }
+
+    private static boolean bends(int before, int argb, int after) {
+        for (int shift = 0; shift <= 16; shift += 8) {
+            final int middle = (((before >> shift) & 0xff) + ((after >> shift) & 0xff)) / 2;
+            if (Math.abs(middle - ((argb >> shift) & 0xff)) > EDGE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long getSupersampledPixels() {
+        return supersampledPixels.sum();
+    }
+
+    /**
+     * Samples taken on top of the one per pixel of the render itself.
+     */
+    public long getExtraSamples() {
+        return extraSamples.sum();
+    }
+}
@@ -0,0 +1,249 @@
+package fun;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finished iteration data for square tiles of grid-aligned views (see {@link Viewport#alignedToGrid}), so that
+ * zooming back out or returning to an earlier view reuses what was already computed.
+ *
+ * Tiles are kept in memory up to a byte budget, least recently used first out. With a disk tier, tiles evicted from
+ * memory go to slots in a memory-mapped scratch file, again least recently used first out, and come back into memory
+ * when they're next asked for. The scratch file only lives as long as the cache.
+ */
+public final class TileCache {
+    private final int tileSize;
+    private final long tileBytes;
+    private final long maxTiles;
+    private final LinkedHashMap<Key, IterationBuffer> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final DiskTier disk;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * A cache with no disk tier.
+     */
+    public TileCache(int tileSize, long memoryBytes) {
+        this(tileSize, memoryBytes, null, 0);
+    }
+
+    /**
+     * @param diskFile scratch file for tiles evicted from memory, or null for none
+     * @param diskBytes how big the scratch file may get
+     */
+    public TileCache(int tileSize, long memoryBytes, Path diskFile, long diskBytes) {
+        this.tileSize = tileSize;
+        this.tileBytes = (long) tileSize * tileSize * (Integer.BYTES + Double.BYTES);
+        this.maxTiles = Math.max(1, memoryBytes / tileBytes);
+        this.disk = diskFile == null ? null : new DiskTier(diskFile, (int) Math.min(diskBytes / tileBytes,
+                Integer.MAX_VALUE / tileBytes));
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * The tile for a key, or null if it isn't cached.
+     */
+    public synchronized IterationBuffer get(Key key) {
+        IterationBuffer tile = memory.get(key);
+        if (tile != null) {
+            hits.increment();
+            return tile;
+        }
+        tile = disk == null ? null : disk.remove(key);
+        if (tile != null) {
+            diskHits.increment();
+            put(key, tile);
+            return tile;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Cache a finished tile. It must not be changed afterwards.
+     */
+    public synchronized void put(Key key, IterationBuffer tile) {
+        if (tile.width != tileSize || tile.height != tileSize) {
+            throw new IllegalArgumentException("tiles are " + tileSize + " pixels square");
+        }
+        memory.put(key, tile);
+        final Iterator<Map.Entry<Key, IterationBuffer>> eldest = memory.entrySet().iterator();
+        while (memory.size() > maxTiles) {
+            final Map.Entry<Key, IterationBuffer> evicted = eldest.next();
+            eldest.remove();
+            evictions.increment();
+            if (disk != null) {
+                disk.put(evicted.getKey(), evicted.getValue());
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Fraction of lookups found in either tier.
+     */
+    public double getHitRate() {
+        final long found = getHits() + getDiskHits();
+        final long lookups = found + getMisses();
+        return lookups == 0 ? 0 : (double) found / lookups;
+    }
+
+    public synchronized int getMemoryTiles() {
+        return memory.size();
+    }
+
+    public synchronized int getDiskTiles() {
+        return disk == null ? 0 : disk.index.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("tile cache: %.0f%% hits (%d memory, %d disk, %d misses), %d tiles in memory, %d on disk",
+                getHitRate() * 100, getHits(), getDiskHits(), getMisses(), getMemoryTiles(), getDiskTiles());
+    }
+
+    /**
+     * Identifies a tile: which arithmetic computed it, at what pixel size and bailout, and where it is on the grid in
+     * whole tiles.
+     */
+    public static final class Key {
+        /**
+         * The {@link FractalKernel#name} of the fractal the tile is of.
+         */
+        public final String fractal;
+        public final PrecisionTier tier;
+        public final double delta;
+        public final int bailout;
+        public final long column;
+        public final long row;
+
+        public Key(String fractal, PrecisionTier tier, double delta, int bailout, long column, long row) {
+            this.fractal = fractal;
+            this.tier = tier;
+            this.delta = delta;
+            this.bailout = bailout;
+            this.column = column;
+            this.row = row;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return fractal.equals(key.fractal) && tier == key.tier && Double.compare(delta, key.delta) == 0
+                    && bailout == key.bailout && column == key.column && row == key.row;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fractal, tier, delta, bailout, column, row);
+        }
+    }
+
+    /**
+     * Fixed size slots in one mapped file, each holding a tile's iteration counts followed by its |z|^2 values.
+     */
+    private final class DiskTier {
+        private final MappedByteBuffer mapped;
+        private final LinkedHashMap<Key, Integer> index = new LinkedHashMap<>(16, 0.75f, true);
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+        DiskTier(Path file, int slots) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE)) {
+                this.mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, slots * tileBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            for (int slot = 0; slot < slots; slot++) {
+                freeSlots.add(slot);
+            }
+        }
+
+        void put(Key key, IterationBuffer tile) {
+            if (index.containsKey(key)) {
+                return;
+            }
+            if (freeSlots.isEmpty()) {
+                final Iterator<Integer> eldest = index.values().iterator();
+                if (!eldest.hasNext()) {
+                    return;
+                }
+                freeSlots.add(eldest.next());
+                eldest.remove();
+            }
+            final int slot = freeSlots.poll();
+            iterationsIn(slot).put(tile.iterations);
+            modulusSquaredIn(slot).put(tile.modulusSquared);
+            index.put(key, slot);
+        }
+
+        IterationBuffer remove(Key key) {
+            final Integer slot = index.remove(key);
+            if (slot == null) {
+                return null;
+            }
+            final IterationBuffer tile = new IterationBuffer(tileSize, tileSize, key.bailout);
+            iterationsIn(slot).get(tile.iterations);
+            modulusSquaredIn(slot).get(tile.modulusSquared);
+            freeSlots.add(slot);
+            return tile;
+        }
+
+        private IntBuffer iterationsIn(int slot) {
+            return slice(slot * tileBytes, tileSize * tileSize * Integer.BYTES).asIntBuffer();
+        }
+
+        private DoubleBuffer modulusSquaredIn(int slot) {
+            return slice(slot * tileBytes + tileSize * tileSize * Integer.BYTES, tileSize * tileSize * Double.BYTES)
+                    .asDoubleBuffer();
+        }
+
+        private ByteBuffer slice(long offset, int length) {
+            // through Buffer, whose position and limit return the same type on every Java version
+            final Buffer buffer = mapped.duplicate();
+            buffer.position((int) offset);
+            buffer.limit((int) offset + length);
+            return ((ByteBuffer) buffer).slice();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package fun;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Maps pixel coordinates of an image of a given size onto the complex plane described by some render parameters.
+ */
+public final class Viewport {
+    public final int width;
+    public final int height;
+    public final double delta;
+    public final Complex topLeft;
+    public final BigComplex preciseCenter;
+
+    public Viewport(RenderParameters renderParameters, int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.delta = renderParameters.width / width;
+        double planeHeight = height * renderParameters.width / width;
+        this.topLeft = new Complex(
+                renderParameters.center.real - renderParameters.width / 2,
+                renderParameters.center.imaginary - planeHeight / 2
+        );
+        this.preciseCenter = renderParameters.preciseCenter;
+    }
+
+    private Viewport(int width, int height, double delta, Complex topLeft, BigComplex preciseCenter) {
+        this.width = width;
+        this.height = height;
+        this.delta = delta;
+        this.topLeft = topLeft;
+        this.preciseCenter = preciseCenter;
+    }
+
+    /**
+     * This view moved by under a pixel, with its pixel size rounded to 32 significant bits, so that its pixels land
+     * on a grid shared by every view at the same scale. Pixel (x, y) is then grid point ({@link #gridX}(x),
+     * {@link #gridY}(y)), whichever view it was seen from. Only for views shallow enough for doubles.
+     */
+    public Viewport alignedToGrid() {
+        final double gridDelta = Double.longBitsToDouble((Double.doubleToLongBits(delta) + (1L << 20)) & -(1L << 21));
+        final long originX = Math.round(topLeft.real / gridDelta);
+        final long originY = Math.round(topLeft.imaginary / gridDelta);
+        final BigDecimal step = new BigDecimal(gridDelta);
+        final BigComplex centre = new BigComplex(
+                step.multiply(BigDecimal.valueOf(originX).add(BigDecimal.valueOf(width / 2.0))),
+                step.multiply(BigDecimal.valueOf(originY).add(BigDecimal.valueOf(height / 2.0))));
+        return new Viewport(width, height, gridDelta,
+                new Complex(originX * gridDelta, originY * gridDelta), centre);
+    }
+
+    /**
+     * Grid column of a pixel column, see {@link #alignedToGrid}.
+     */
+    public long gridX(int xPixel) {
+        return Math.round(topLeft.real / delta) + xPixel;
+    }
+
+    /**
+     * Grid row of a pixel row, see {@link #alignedToGrid}.
+     */
+    public long gridY(int yPixel) {
+        return Math.round(topLeft.imaginary / delta) + yPixel;
+    }
+
+    public double real(int xPixel) {
+        return topLeft.real + delta * xPixel;
+    }
+
+    public double imaginary(int yPixel) {
+        return topLeft.imaginary + delta * yPixel;
+    }
+
+    public Complex pointAt(int xPixel, int yPixel) {
+        return new Complex(real(xPixel), imaginary(yPixel));
+    }
+
+    /**
+     * Like {@link #pointAt} but without losing the precise centre, for views too deep for doubles.
+     */
+    public BigComplex precisePointAt(int xPixel, int yPixel) {
+        return preciseCenter.plus(
+                delta * (xPixel - width / 2.0), delta * (yPixel - height / 2.0), new MathContext(digitsNeeded()));
+    }
+
+    /**
+     * Decimal digits needed to tell neighbouring pixels apart, with some to spare.
+     */
+    public int digitsNeeded() {
+        return Math.max(20, (int) Math.ceil(-Math.log10(delta)) + 15);
+    }
+}
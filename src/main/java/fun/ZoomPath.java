@@ -0,0 +1,129 @@
+package fun;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The views of a zoom animation, interpolated between keyframes. The width changes log-linearly, so the zoom runs at
+ * a steady speed, and frames are shared out between keyframes by how far each step zooms. The centre and bailout
+ * change linearly within each step.
+ */
+public final class ZoomPath {
+    private final List<RenderParameters> keyframes;
+    private final int frames;
+    private final double[] distances;
+
+    public ZoomPath(List<RenderParameters> keyframes, int frames) {
+        if (keyframes.isEmpty() || frames < 1) {
+            throw new IllegalArgumentException("need at least one keyframe and one frame");
+        }
+        this.keyframes = Collections.unmodifiableList(new ArrayList<>(keyframes));
+        this.frames = frames;
+        // how far into the zoom each keyframe is, in e-folds of width, or in steps if nothing zooms at all
+        this.distances = new double[keyframes.size()];
+        for (int i = 1; i < keyframes.size(); i++) {
+            distances[i] = distances[i - 1]
+                    + Math.abs(Math.log(keyframes.get(i).width / keyframes.get(i - 1).width));
+        }
+        if (distances[distances.length - 1] == 0) {
+            for (int i = 0; i < distances.length; i++) {
+                distances[i] = i;
+            }
+        }
+    }
+
+    /**
+     * Keyframes from a text file, one per line as "real imaginary width [bailout]". Blank lines and lines starting
+     * with # are skipped, and a missing bailout is the one before it, or {@code bailout} for the first. Every keyframe
+     * is of {@code fractal}.
+     */
+    public static ZoomPath read(Path file, int frames, int bailout, FractalKernel fractal) throws IOException {
+        final List<RenderParameters> keyframes = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            final String[] fields = trimmed.split("\\s+");
+            if (fields.length < 3) {
+                throw new IOException("expected real imaginary width [bailout]: " + line);
+            }
+            bailout = fields.length > 3 ? Integer.parseInt(fields[3]) : bailout;
+            keyframes.add(new RenderParameters(new BigComplex(new BigDecimal(fields[0]), new BigDecimal(fields[1])),
+                    Double.parseDouble(fields[2]), bailout, fractal));
+        }
+        return new ZoomPath(keyframes, frames);
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    public List<RenderParameters> getKeyframes() {
+        return keyframes;
+    }
+
+    /**
+     * The view for a frame, from 0 for the first keyframe to {@code getFrames() - 1} for the last.
+     */
+    public RenderParameters frame(int index) {
+        if (keyframes.size() == 1) {
+            return keyframes.get(0);
+        }
+        final double distance = frames == 1 ? 0 : distances[distances.length - 1] * index / (frames - 1);
+        int step = 0;
+        while (step < keyframes.size() - 2 && distances[step + 1] < distance) {
+            step++;
+        }
+        final RenderParameters from = keyframes.get(step), to = keyframes.get(step + 1);
+        final double span = distances[step + 1] - distances[step];
+        final double t = span == 0 ? 1 : Math.min(1, (distance - distances[step]) / span);
+        final double width = Math.exp(Math.log(from.width) + t * Math.log(to.width / from.width));
+        return new RenderParameters(new BigComplex(lerp(from.preciseCenter.real, to.preciseCenter.real, t, width),
+                lerp(from.preciseCenter.imaginary, to.preciseCenter.imaginary, t, width)), width,
+                (int) Math.round(from.bailout + t * (to.bailout - from.bailout)), from.fractal);
+    }
+
+    /**
+     * Whether every keyframe has the same centre, so the whole zoom can come from one {@link ExponentialMap}.
+     */
+    public boolean isStraight() {
+        for (RenderParameters keyframe : keyframes) {
+            if (keyframe.preciseCenter.real.compareTo(keyframes.get(0).preciseCenter.real) != 0
+                    || keyframe.preciseCenter.imaginary.compareTo(keyframes.get(0).preciseCenter.imaginary) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public double getWidestWidth() {
+        return keyframes.stream().mapToDouble(keyframe -> keyframe.width).max().getAsDouble();
+    }
+
+    public double getNarrowestWidth() {
+        return keyframes.stream().mapToDouble(keyframe -> keyframe.width).min().getAsDouble();
+    }
+
+    public int getHighestBailout() {
+        return keyframes.stream().mapToInt(keyframe -> keyframe.bailout).max().getAsInt();
+    }
+
+    private static BigDecimal lerp(BigDecimal from, BigDecimal to, double t, double width) {
+        if (t == 0 || from.compareTo(to) == 0) {
+            return from;
+        }
+        if (t == 1) {
+            return to;
+        }
+        final MathContext precision = new MathContext(Math.max(20, (int) Math.ceil(-Math.log10(width)) + 20));
+        return from.add(to.subtract(from).multiply(new BigDecimal(t), precision), precision);
+    }
+}
@@ -0,0 +1,58 @@
+package fun.cli;
+
+import fun.Palette;
+import fun.RenderParameters;
+import fun.RenderScheduler;
+import fun.ZoomPath;
+import fun.io.FramePipeline;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a zoom animation to numbered PNG or raw RGB files, ready for a video encoder.
+ *
+ * <pre>
+ * animate WIDTH HEIGHT PATTERN --frames N [--real X] [--imaginary Y] [--scale W] [--to-scale W] [--bailout N]
+ *         [--keyframes FILE] [--palette NAME] [--buffers N] [--encoders N] [--fractal SPEC]
+ * </pre>
+ *
+ * PATTERN names each frame given its number, as for String.format: "zoom%05d.png" for example. The zoom goes from
+ * --scale to --to-scale around one centre, or through the views in a --keyframes file, one "real imaginary width
+ * [bailout]" per line, see {@link ZoomPath#read}.
+ *
+ * A zoom into one point is rendered once as an exponential map and each frame resampled from it, see
+ * {@link fun.ExponentialMap}. Frames are written by --encoders threads (default 2) while later ones are computed, with
+ * at most --buffers frames (default 8) waiting to be written. Frames per second is the figure to watch.
+ */
+public class AnimateCommand {
+    public static void main(String[] args) throws Exception {
+        final Options options = new Options(args);
+        final int width = options.positionalInt(0);
+        final int height = options.positionalInt(1);
+        final String pattern = options.positional(2);
+        final int frames = options.getInt("frames", 100);
+        final RenderParameters from = options.renderParameters();
+        final ZoomPath path = options.has("keyframes")
+                ? ZoomPath.read(Paths.get(options.get("keyframes", null)), frames, from.bailout, from.fractal)
+                : new ZoomPath(Arrays.asList(from, new RenderParameters(from.preciseCenter,
+                options.getDouble("to-scale", from.width * 1e-6), from.bailout, from.fractal)), frames);
+
+        final FramePipeline pipeline = new FramePipeline(path, width, height, pattern,
+                Palette.named(options.get("palette", "classic")), RenderScheduler.shared(),
+                options.getInt("buffers", 8), options.getInt("encoders", 2));
+        pipeline.run();
+
+        System.err.printf("%d frames at %.1f frames/sec, %s%n", pipeline.getFramesWritten(),
+                pipeline.getFramesPerSecond(), pipeline.isExponential() ? "resampled from an exponential map"
+                        : "each rendered whole");
+        System.err.printf("iterated %d points, %.1f%% of rendering every frame whole%n", pipeline.getPoints(),
+                pipeline.getPoints() * 100.0 / ((long) width * height * frames));
+        System.err.printf("busy time: compute %d ms, resample %d ms, encode %d ms%n",
+                TimeUnit.NANOSECONDS.toMillis(pipeline.getComputeNanos()),
+                TimeUnit.NANOSECONDS.toMillis(pipeline.getResampleNanos()),
+                TimeUnit.NANOSECONDS.toMillis(pipeline.getEncodeNanos()));
+        RenderScheduler.shared().shutdown();
+    }
+}
@@ -0,0 +1,70 @@
+package fun.cli;
+
+import fun.IterationBuffer;
+import fun.PixelBuffer;
+import fun.RenderParameters;
+import fun.distributed.Coordinator;
+import fun.io.ImageFiles;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders one image across worker JVMs, see {@link Coordinator}.
+ *
+ * <pre>
+ * coordinate WIDTH HEIGHT OUTPUT [--real X] [--imaginary Y] [--scale W] [--bailout N] [--no-series]
+ *            [--port N] [--tile-size N] [--local-workers N] [--worker-threads N]
+ * </pre>
+ *
+ * Workers on other machines join with {@code worker --host HOST --port N}. --local-workers also starts that many
+ * worker processes on this machine, which is the easy way to try it out.
+ */
+public class CoordinateCommand {
+    public static void main(String[] args) throws Exception {
+        final Options options = new Options(args);
+        final int width = options.positionalInt(0);
+        final int height = options.positionalInt(1);
+        final String output = options.positional(2);
+        final RenderParameters parameters = options.renderParameters();
+        if (!parameters.fractal.isMandelbrot()) {
+            throw new IllegalArgumentException("workers only render the Mandelbrot set");
+        }
+
+        final List<Process> workers = new ArrayList<>();
+        try (Coordinator coordinator = new Coordinator(parameters, width, height, options.getInt("tile-size", 128),
+                options.getInt("port", 9090), !options.has("no-series")).start()) {
+            System.err.printf("%d tiles, waiting for workers on port %d%n", coordinator.getTiles(),
+                    coordinator.getPort());
+            for (int i = 0; i < options.getInt("local-workers", 0); i++) {
+                workers.add(startWorker(coordinator.getPort(), options.getInt("worker-threads", 1)));
+            }
+            final long start = System.nanoTime();
+            final IterationBuffer iterations = coordinator.result().get();
+            System.err.printf("rendered in %d ms: %d tiles stolen, %d reassigned, %d duplicate results%n",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), coordinator.getStolen(),
+                    coordinator.getReassigned(), coordinator.getDuplicates());
+            System.err.print(coordinator.getWorkerSummary());
+            final PixelBuffer pixels = new PixelBuffer(width, height);
+            iterations.colour(0, 0, width, height, pixels);
+            ImageFiles.write(pixels, output);
+            System.err.println("wrote " + output);
+        } finally {
+            for (Process worker : workers) {
+                if (!worker.waitFor(5, TimeUnit.SECONDS)) {
+                    worker.destroy();
+                }
+            }
+        }
+    }
+
+    private static Process startWorker(int port, int threads) throws Exception {
+        final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "fun.Mandelbrot", "worker",
+                "--port", Integer.toString(port), "--threads", Integer.toString(threads))
+                .inheritIO()
+                .start();
+    }
+}
@@ -0,0 +1,111 @@
+package fun.cli;
+
+import fun.Checkpoint;
+import fun.IterationFile;
+import fun.Palette;
+import fun.RenderEngine;
+import fun.RenderJob;
+import fun.RenderParameters;
+import fun.RenderScheduler;
+import fun.io.BandWriter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders images of any size to a PNG or raw RGB file, a band of rows at a time, with the heap staying the same size
+ * however big the image is.
+ *
+ * <pre>
+ * gigapixel WIDTH HEIGHT OUTPUT [--real X] [--imaginary Y] [--scale W] [--bailout N] [--no-series]
+ *           [--mode brute-force|mariani-silver] [--band-mb N] [--iterations FILE] [--palette NAME] [--equalise]
+ *           [--fractal SPEC] [--checkpoint FILE]
+ * </pre>
+ *
+ * --band-mb bounds each band's iteration data (default 64), and two bands are in memory at once: one being computed
+ * while the one before it is written. --iterations also keeps the iteration data of the whole image in a
+ * memory-mapped file, which
+ * {@code recolour} can colour again later. --equalise spreads the palette evenly over the image's points, see
+ * {@link Palette#equalised}; that needs all of them first, so it renders into an iteration file (a temporary one
+ * without --iterations) and colours from it afterwards.
+ *
+ * --checkpoint keeps each finished tile in a memory-mapped {@link Checkpoint} file as well, so that a render cut short
+ * by a restart can be finished with {@code resume}.
+ */
+public class GigapixelCommand {
+    public static void main(String[] args) throws Exception {
+        final Options options = new Options(args);
+        final int width = options.positionalInt(0);
+        final int height = options.positionalInt(1);
+        final String output = options.positional(2);
+        final RenderParameters parameters = options.renderParameters();
+        final RenderEngine.Mode mode =
+                RenderCommand.enumOption(RenderEngine.Mode.class, options.get("mode", "mariani-silver"));
+        try (Checkpoint checkpoint = options.has("checkpoint") ? Checkpoint.create(
+                Paths.get(options.get("checkpoint", null)), mode, parameters, width, height) : null) {
+            render(parameters, width, height, output, mode, checkpoint, options);
+        }
+    }
+
+    /**
+     * Render a view to {@code output} as the options say, keeping tiles in {@code checkpoint} if it isn't null, and
+     * taking those it already has from it.
+     */
+    static void render(RenderParameters parameters, int width, int height, String output, RenderEngine.Mode mode,
+                       Checkpoint checkpoint, Options options) throws Exception {
+        final int bandHeight = BandWriter.bandHeight(width, (long) options.getInt("band-mb", 64) << 20);
+        final RenderEngine engine = RenderEngine.builder()
+                .mode(mode)
+                .seriesApproximation(!options.has("no-series"))
+                .priority(RenderJob.Priority.BATCH)
+                .build();
+
+        final Palette palette = Palette.named(options.get("palette", "classic"));
+        final boolean equalise = options.has("equalise");
+
+        System.err.printf("%dx%d in bands of up to %d rows%n", width, height, bandHeight);
+        final long start = System.nanoTime();
+        // equalising needs every point before colouring any, so the iteration data has to be kept somewhere
+        final Path scratch = equalise && !options.has("iterations")
+                ? Files.createTempFile("mandelbrot", ".iterations") : null;
+        final Path iterationsPath = options.has("iterations") ? Paths.get(options.get("iterations", null)) : scratch;
+        final IterationFile iterations = iterationsPath == null ? null
+                : IterationFile.create(iterationsPath, parameters, width, height);
+        try {
+            if (equalise) {
+                engine.renderBands(parameters, width, height, bandHeight, iterations::write, checkpoint).get();
+                BandWriter.recolour(iterations, output, palette, true, bandHeight);
+            } else {
+                try (BandWriter writer = new BandWriter(output, width, height, iterations, palette)) {
+                    engine.renderBands(parameters, width, height, bandHeight, writer, checkpoint).get();
+                }
+            }
+        } finally {
+            if (iterations != null) {
+                iterations.close();
+            }
+            if (scratch != null) {
+                Files.delete(scratch);
+            }
+        }
+        final long nanos = System.nanoTime() - start;
+        System.err.printf("wrote %s in %d ms, %.0f points/sec, peak heap %d MB%n", output,
+                TimeUnit.NANOSECONDS.toMillis(nanos), (double) width * height * 1e9 / nanos, peakHeap() >> 20);
+        RenderScheduler.shared().shutdown();
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
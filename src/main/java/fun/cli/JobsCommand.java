@@ -0,0 +1,107 @@
+package fun.cli;
+
+import fun.Complex;
+import fun.PixelBuffer;
+import fun.RenderEngine;
+import fun.RenderJob;
+import fun.RenderParameters;
+import fun.RenderScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Puts a mixed load on the render threads, the way a busy process would see it, and reports how each job got on and
+ * how many points per second got done overall.
+ *
+ * <pre>
+ * jobs [--posters N] [--previews N] [--thumbnails N] [--bailout N] [--deadline-ms N] [--one-at-a-time]
+ * </pre>
+ *
+ * Posters (1600x1200, batch) and previews (400x300, normal, due --deadline-ms after they're submitted, default 5000)
+ * are all submitted at once; thumbnails (160x120, interactive) then arrive one every 100 ms while the rest is
+ * running, like someone clicking around in the window. --one-at-a-time runs every job on its own instead, one after
+ * another, to compare overall throughput with.
+ */
+public class JobsCommand {
+    private static final Complex[] CENTRES = {
+            new Complex(-0.75, 0.1), new Complex(-0.7436, 0.1318), new Complex(-1.25, 0.02), new Complex(0.3, 0.5)};
+
+    public static void main(String[] args) throws Exception {
+        final Options options = new Options(args);
+        Logger.getLogger(RenderEngine.class.getName()).setLevel(Level.WARNING);
+        final int bailout = options.getInt("bailout", 2000);
+        final boolean oneAtATime = options.has("one-at-a-time");
+        final RenderEngine engine = new RenderEngine();
+        final List<RenderJob> jobs = new ArrayList<>();
+        final List<CompletableFuture<PixelBuffer>> renders = new ArrayList<>();
+        long points = 0;
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < options.getInt("posters", 2); i++) {
+            final RenderJob job = new RenderJob("poster " + i, RenderJob.Priority.BATCH);
+            points += submit(engine, job, view(i, 0.1, bailout), 1600, 1200, jobs, renders, oneAtATime);
+        }
+        for (int i = 0; i < options.getInt("previews", 8); i++) {
+            final RenderJob job = new RenderJob("preview " + i, RenderJob.Priority.NORMAL)
+                    .dueIn(options.getInt("deadline-ms", 5000));
+            points += submit(engine, job, view(i, 0.05, bailout), 400, 300, jobs, renders, oneAtATime);
+        }
+        for (int i = 0; i < options.getInt("thumbnails", 20); i++) {
+            if (!oneAtATime) {
+                Thread.sleep(100);
+            }
+            final RenderJob job = new RenderJob("thumbnail " + i, RenderJob.Priority.INTERACTIVE);
+            points += submit(engine, job, view(i, 0.02, bailout), 160, 120, jobs, renders, oneAtATime);
+        }
+        CompletableFuture.allOf(renders.toArray(new CompletableFuture<?>[0])).get();
+        final long nanos = System.nanoTime() - start;
+
+        for (RenderJob job : jobs) {
+            System.out.println(job);
+        }
+        for (RenderJob.Priority priority : RenderJob.Priority.values()) {
+            summarise(priority, jobs);
+        }
+        System.out.printf("%d jobs, %d points in %d ms: %.0f points/sec%s%n", jobs.size(), points,
+                TimeUnit.NANOSECONDS.toMillis(nanos), points * 1e9 / nanos, oneAtATime ? ", one at a time" : "");
+        RenderScheduler.shared().shutdown();
+    }
+
+    private static RenderParameters view(int i, double width, int bailout) {
+        return new RenderParameters(CENTRES[i % CENTRES.length], width, bailout);
+    }
+
+    private static long submit(RenderEngine engine, RenderJob job, RenderParameters parameters, int width, int height,
+                               List<RenderJob> jobs, List<CompletableFuture<PixelBuffer>> renders, boolean wait)
+            throws Exception {
+        final CompletableFuture<PixelBuffer> render = engine.render(parameters, width, height, job);
+        if (wait) {
+            render.get();
+        }
+        jobs.add(job);
+        renders.add(render);
+        return (long) width * height;
+    }
+
+    private static void summarise(RenderJob.Priority priority, List<RenderJob> jobs) {
+        long count = 0, queue = 0, worstQueue = 0, elapsed = 0, late = 0;
+        for (RenderJob job : jobs) {
+            if (job.priority == priority) {
+                count++;
+                queue += job.getQueueMillis();
+                worstQueue = Math.max(worstQueue, job.getQueueMillis());
+                elapsed += job.getElapsedMillis();
+                late += job.isLate() ? 1 : 0;
+            }
+        }
+        if (count > 0) {
+            System.out.printf("%s: %d jobs, queued %d ms on average (worst %d), elapsed %d ms on average, %d late%n",
+                    priority, count, queue / count, worstQueue, elapsed / count, late);
+        }
+    }
+}
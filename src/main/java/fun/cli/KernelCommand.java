@@ -0,0 +1,83 @@
+package fun.cli;
+
+import fun.BatchKernel;
+import fun.InteriorCheckingKernel;
+import fun.IterationResult;
+import fun.RenderParameters;
+import fun.ScalarBatchKernel;
+import fun.Viewport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the points/sec of the batch kernels with the one-point-at-a-time {@link IterationResult#of} loop, and
+ * checks that they all agree.
+ *
+ * <pre>
+ * kernels [WIDTH HEIGHT] [--real X] [--imaginary Y] [--scale W] [--bailout N] [--repeat N] [--interior]
+ * </pre>
+ */
+public class KernelCommand {
+    public static void main(String[] args) {
+        final Options options = new Options(args);
+        final int width = options.positionalCount() > 0 ? options.positionalInt(0) : 1000;
+        final int height = options.positionalCount() > 1 ? options.positionalInt(1) : 1000;
+        final RenderParameters parameters = options.renderParameters();
+        final int repeat = options.getInt("repeat", 3);
+        final Viewport viewport = new Viewport(parameters, width, height);
+
+        final List<BatchKernel> kernels = new ArrayList<>();
+        kernels.add(new ScalarBatchKernel());
+        final BatchKernel best = BatchKernel.best();
+        if (!best.name().equals(kernels.get(0).name())) {
+            kernels.add(best);
+        }
+        if (options.has("interior")) {
+            kernels.add(new InteriorCheckingKernel());
+        }
+
+        final int[] expected = new int[width * height];
+        for (int round = 1; round <= repeat; round++) {
+            final long start = System.nanoTime();
+            for (int y = 0; y < height; y++) {
+                final double cy = viewport.imaginary(y);
+                for (int x = 0; x < width; x++) {
+                    expected[y * width + x] = IterationResult.of(viewport.real(x), cy, parameters.bailout).iterations;
+                }
+            }
+            report("IterationResult.of", round, width * height, System.nanoTime() - start);
+        }
+
+        final double[] cx = new double[width];
+        final double[] cy = new double[width];
+        final int[] iterations = new int[width * height];
+        final int[] rowIterations = new int[width];
+        final double[] modulusSquared = new double[width];
+        for (BatchKernel kernel : kernels) {
+            for (int round = 1; round <= repeat; round++) {
+                final long start = System.nanoTime();
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        cx[x] = viewport.real(x);
+                        cy[x] = viewport.imaginary(y);
+                    }
+                    kernel.iterate(cx, cy, width, parameters.bailout, rowIterations, modulusSquared);
+                    System.arraycopy(rowIterations, 0, iterations, y * width, width);
+                }
+                report(kernel.name(), round, width * height, System.nanoTime() - start);
+            }
+            if (!Arrays.equals(expected, iterations)) {
+                System.out.println(kernel.name() + ": MISMATCH against IterationResult.of");
+            }
+            if (kernel instanceof InteriorCheckingKernel) {
+                System.out.println(kernel.name() + ": " + kernel);
+            }
+        }
+    }
+
+    private static void report(String name, int round, long points, long nanos) {
+        System.out.printf("%-20s round %d: %12.0f points/sec%n", name, round, points * 1e9 / nanos);
+    }
+}
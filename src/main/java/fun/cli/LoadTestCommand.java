@@ -0,0 +1,106 @@
+package fun.cli;
+
+import fun.metrics.LatencyRecorder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fires tile requests at a running tile server from several clients at once and reports throughput, status codes and
+ * latency percentiles as the clients saw them, followed by the server's own {@code /stats}.
+ *
+ * <pre>
+ * loadtest [--url http://localhost:8080] [--clients N] [--requests N] [--max-zoom N] [--seed N]
+ * </pre>
+ *
+ * Tiles are picked at a random zoom, bunched around the middle of the map the way people browsing tend to be, so that
+ * some requests repeat and some arrive while the same tile is still rendering.
+ */
+public class LoadTestCommand {
+    public static void main(String[] args) throws Exception {
+        final Options options = new Options(args);
+        final String url = options.get("url", "http://localhost:8080");
+        final int clients = options.getInt("clients", 16);
+        final int requests = options.getInt("requests", 2000);
+        final int maxZoom = options.getInt("max-zoom", 8);
+        final long seed = options.getInt("seed", 1);
+
+        final LatencyRecorder latency = new LatencyRecorder();
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        final LongAdder bytes = new LongAdder();
+        final ExecutorService pool = Executors.newFixedThreadPool(clients);
+        final long start = System.nanoTime();
+        for (int client = 0; client < clients; client++) {
+            final Random random = new Random(seed + client);
+            final int count = requests / clients + (client < requests % clients ? 1 : 0);
+            pool.execute(() -> {
+                for (int i = 0; i < count; i++) {
+                    final int zoom = random.nextInt(maxZoom + 1);
+                    final long x = around(random, zoom), y = around(random, zoom);
+                    final long requestStart = System.nanoTime();
+                    int status;
+                    try {
+                        final HttpURLConnection connection =
+                                (HttpURLConnection) new URL(url + "/" + zoom + "/" + x + "/" + y + ".png")
+                                        .openConnection();
+                        status = connection.getResponseCode();
+                        bytes.add(drain(status < 400 ? connection.getInputStream() : connection.getErrorStream())
+                                .length);
+                    } catch (IOException e) {
+                        status = -1;
+                    }
+                    latency.record(System.nanoTime() - requestStart);
+                    statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.DAYS);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.err.printf("%d requests from %d clients in %.2f s: %.0f requests/sec, %.1f MB/sec%n",
+                requests, clients, seconds, requests / seconds, bytes.sum() / seconds / (1 << 20));
+        for (Map.Entry<Integer, LongAdder> status : new TreeMap<>(statuses).entrySet()) {
+            System.err.printf("  status %s: %d%n",
+                    status.getKey() < 0 ? "connection failed" : status.getKey(), status.getValue().sum());
+        }
+        System.err.println("latency: " + latency);
+        final HttpURLConnection stats = (HttpURLConnection) new URL(url + "/stats").openConnection();
+        System.err.print(new String(drain(stats.getInputStream()), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A tile coordinate at some zoom, normally distributed around the middle.
+     */
+    private static long around(Random random, int zoom) {
+        final long tiles = 1L << zoom;
+        final long tile = (long) Math.floor(tiles * (0.5 + 0.15 * random.nextGaussian()));
+        return Math.max(0, Math.min(tiles - 1, tile));
+    }
+
+    private static byte[] drain(InputStream in) throws IOException {
+        if (in == null) {
+            return new byte[0];
+        }
+        try (InputStream stream = in) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] chunk = new byte[8192];
+            for (int read; (read = stream.read(chunk)) > 0; ) {
+                out.write(chunk, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package fun.cli;
+
+import fun.BigComplex;
+import fun.FractalKernel;
+import fun.RenderParameters;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Very small command line parser: positional arguments plus "--name value" options and bare "--flag" switches.
+ */
+public final class Options {
+    private final List<String> positional = new ArrayList<>();
+    private final Map<String, String> named = new HashMap<>();
+
+    public Options(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+            if (arg.startsWith("--")) {
+                final String name = arg.substring(2);
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    named.put(name, args[++i]);
+                } else {
+                    named.put(name, "true");
+                }
+            } else {
+                positional.add(arg);
+            }
+        }
+    }
+
+    public int positionalCount() {
+        return positional.size();
+    }
+
+    public String positional(int index) {
+        if (index >= positional.size()) {
+            throw new IllegalArgumentException("missing argument " + (index + 1));
+        }
+        return positional.get(index);
+    }
+
+    public int positionalInt(int index) {
+        return Integer.parseInt(positional(index));
+    }
+
+    public boolean has(String name) {
+        return named.containsKey(name);
+    }
+
+    public String get(String name, String defaultValue) {
+        return named.getOrDefault(name, defaultValue);
+    }
+
+    public int getInt(String name, int defaultValue) {
+        return has(name) ? Integer.parseInt(named.get(name)) : defaultValue;
+    }
+
+    public double getDouble(String name, double defaultValue) {
+        return has(name) ? Double.parseDouble(named.get(name)) : defaultValue;
+    }
+
+    /**
+     * Render parameters from --real, --imaginary, --scale, --bailout and --fractal, defaulting to the initial view of
+     * the Mandelbrot set. The centre keeps every digit it is given, for deep zooms. See {@link FractalKernel#named}
+     * for the fractals.
+     */
+    public RenderParameters renderParameters() {
+        final RenderParameters initial = RenderParameters.INITIAL;
+        return new RenderParameters(
+                new BigComplex(
+                        has("real") ? new BigDecimal(named.get("real")) : initial.preciseCenter.real,
+                        has("imaginary") ? new BigDecimal(named.get("imaginary")) : initial.preciseCenter.imaginary),
+                getDouble("scale", initial.width),
+                getInt("bailout", initial.bailout),
+                has("fractal") ? FractalKernel.named(named.get("fractal")) : initial.fractal);
+    }
+}
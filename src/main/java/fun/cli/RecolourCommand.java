@@ -0,0 +1,32 @@
+package fun.cli;
+
+import fun.IterationFile;
+import fun.Palette;
+import fun.io.BandWriter;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Colours the iteration data kept by {@code gigapixel --iterations} into an image again, with any palette, without
+ * iterating a single point.
+ *
+ * <pre>
+ * recolour ITERATIONS OUTPUT [--palette classic|ultra|fire|grey] [--equalise] [--band-mb N]
+ * </pre>
+ */
+public class RecolourCommand {
+    public static void main(String[] args) throws Exception {
+        final Options options = new Options(args);
+        final String output = options.positional(1);
+        final Palette palette = Palette.named(options.get("palette", "classic"));
+        final long start = System.nanoTime();
+        try (IterationFile iterations = IterationFile.open(Paths.get(options.positional(0)))) {
+            BandWriter.recolour(iterations, output, palette, options.has("equalise"),
+                    BandWriter.bandHeight(iterations.width, (long) options.getInt("band-mb", 64) << 20));
+            System.err.printf("recoloured %dx%d with %s%s into %s in %d ms%n", iterations.width, iterations.height,
+                    palette, options.has("equalise") ? ", equalised," : "", output,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+}
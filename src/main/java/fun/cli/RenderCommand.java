@@ -0,0 +1,115 @@
+package fun.cli;
+
+import fun.BatchKernel;
+import fun.InteriorCheckingKernel;
+import fun.IterationBuffer;
+import fun.Palette;
+import fun.PixelBuffer;
+import fun.PrecisionTier;
+import fun.RenderEngine;
+import fun.RenderParameters;
+import fun.RenderScheduler;
+import fun.io.ImageFiles;
+import fun.metrics.RenderStatistics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless batch rendering to a PNG or raw RGB file.
+ *
+ * <pre>
+ * render WIDTH HEIGHT OUTPUT [--real X] [--imaginary Y] [--scale W] [--bailout N] [--repeat N] [--interior]
+ *        [--mode brute-force|mariani-silver] [--verify] [--no-series]
+ *        [--tier float|double|double-double|perturbation] [--metrics] [--palette NAME] [--equalise]
+ *        [--antialias SAMPLES] [--fractal mandelbrot|julia:RE,IM|multibrot:N|burning-ship]
+ * </pre>
+ *
+ * The precision tier is chosen from the zoom unless --tier forces one. --no-series turns off series approximation
+ * for perturbation. --fractal renders something other than the Mandelbrot set, see {@link fun.FractalKernel#named};
+ * those are always rendered in doubles, so --tier is ignored for them.
+ *
+ * --interior switches to the {@link InteriorCheckingKernel}, and reports how many iterations it skipped. --verify
+ * renders the same view again computing every pixel, and reports how many pixels the chosen mode got wrong.
+ *
+ * With --repeat the same job is rendered several times so warm throughput can be told apart from JVM startup.
+ * --metrics prints each job's {@link fun.metrics.RenderMetrics}, the same figures JMX and Flight Recorder see.
+ *
+ * --palette picks one of the {@link Palette#names()}, and --equalise spreads it evenly over the image's points.
+ *
+ * --antialias supersamples the pixels at sharp edges with up to SAMPLES samples each (4, 9, 16...), see
+ * {@link fun.Supersampler}, and reports how many extra samples that took against supersampling every pixel.
+ */
+public class RenderCommand {
+    public static void main(String[] args) throws Exception {
+        final Options options = new Options(args);
+        final int width = options.positionalInt(0);
+        final int height = options.positionalInt(1);
+        final String output = options.positional(2);
+        final RenderParameters parameters = options.renderParameters();
+        final int repeat = options.getInt("repeat", 1);
+
+        System.err.printf("startup: %d ms%n", ManagementFactory.getRuntimeMXBean().getUptime());
+        final BatchKernel kernel = options.has("interior") ? new InteriorCheckingKernel() : BatchKernel.best();
+        final RenderEngine.Mode mode = enumOption(RenderEngine.Mode.class, options.get("mode", "brute-force"));
+        final RenderEngine engine = RenderEngine.builder()
+                .kernel(kernel)
+                .mode(mode)
+                .seriesApproximation(!options.has("no-series"))
+                .tier(options.has("tier") ? enumOption(PrecisionTier.class, options.get("tier", null)) : null)
+                .palette(Palette.named(options.get("palette", "classic")))
+                .equalise(options.has("equalise"))
+                .antialias(options.getInt("antialias", 1))
+                .build();
+        PixelBuffer buffer = null;
+        for (int job = 1; job <= repeat; job++) {
+            final long start = System.nanoTime();
+            buffer = engine.render(parameters, width, height).get();
+            final long nanos = System.nanoTime() - start;
+            System.err.printf("job %d: %d ms, %.0f points/sec%n",
+                    job, TimeUnit.NANOSECONDS.toMillis(nanos), (double) width * height * 1e9 / nanos);
+            if (options.has("metrics")) {
+                System.err.println(RenderStatistics.get().getLastRender());
+            }
+        }
+        if (kernel instanceof InteriorCheckingKernel) {
+            System.err.println("interior checks: " + kernel);
+        }
+        if (mode == RenderEngine.Mode.MARIANI_SILVER) {
+            System.err.printf("filled %d of %d pixels without iterating%n",
+                    engine.getSkippedPixels() / repeat, (long) width * height);
+        }
+        if (engine.getDeepRenders() > 0) {
+            System.err.printf("perturbation: %d glitches rebased, %d iterations skipped by series approximation%n",
+                    engine.getRebases() / repeat, engine.getSeriesSkippedIterations() / repeat);
+        }
+        if (engine.getSupersampledPixels() > 0) {
+            final int factor = (int) Math.sqrt(options.getInt("antialias", 1));
+            final long extra = engine.getExtraSamples() / repeat;
+            System.err.printf("anti-aliased %d of %d pixels: %d extra samples, %.1f%% of supersampling every pixel%n",
+                    engine.getSupersampledPixels() / repeat, (long) width * height, extra,
+                    extra * 100.0 / ((factor * factor - 1) * (long) width * height));
+        }
+        if (options.has("verify")) {
+            verify(engine, parameters, width, height);
+        }
+        final long start = System.nanoTime();
+        ImageFiles.write(buffer, output);
+        System.err.printf("wrote %s in %d ms%n", output, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        RenderScheduler.shared().shutdown();
+    }
+
+    static <E extends Enum<E>> E enumOption(Class<E> type, String value) {
+        return Enum.valueOf(type, value.toUpperCase().replace('-', '_'));
+    }
+
+    private static void verify(RenderEngine engine, RenderParameters parameters, int width, int height)
+            throws Exception {
+        final RenderEngine bruteForce = RenderEngine.builder().build();
+        final IterationBuffer expected = bruteForce.iterate(parameters, width, height).get();
+        final IterationBuffer actual = engine.iterate(parameters, width, height).get();
+        final long mismatches = actual.mismatches(expected);
+        System.err.printf("verify: %d of %d pixels (%.4f%%) differ from brute force%n",
+                mismatches, (long) width * height, mismatches * 100.0 / ((long) width * height));
+    }
+}
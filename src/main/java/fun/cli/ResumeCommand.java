@@ -0,0 +1,25 @@
+package fun.cli;
+
+import fun.Checkpoint;
+
+import java.nio.file.Paths;
+
+/**
+ * Finishes a render kept in a checkpoint by {@code gigapixel --checkpoint}, computing only the tiles it doesn't have
+ * yet. The view, size and mode come from the checkpoint; the output and the rest are given again.
+ *
+ * <pre>
+ * resume CHECKPOINT OUTPUT [--band-mb N] [--iterations FILE] [--palette NAME] [--equalise] [--no-series]
+ * </pre>
+ */
+public class ResumeCommand {
+    public static void main(String[] args) throws Exception {
+        final Options options = new Options(args);
+        try (Checkpoint checkpoint = Checkpoint.open(Paths.get(options.positional(0)))) {
+            System.err.printf("%d of %d tiles already finished%n", checkpoint.getFinishedTiles(),
+                    checkpoint.getTiles());
+            GigapixelCommand.render(checkpoint.parameters, checkpoint.width, checkpoint.height,
+                    options.positional(1), checkpoint.mode, checkpoint, options);
+        }
+    }
+}
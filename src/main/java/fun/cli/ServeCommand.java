@@ -0,0 +1,41 @@
+package fun.cli;
+
+import fun.RenderEngine;
+import fun.RenderJob;
+import fun.server.TileServer;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves slippy map tiles over HTTP until killed, see {@link TileServer}.
+ *
+ * <pre>
+ * serve [--port N] [--tile-size N] [--bailout N] [--max-zoom N] [--cache-mb N] [--max-pending N]
+ *       [--mode brute-force|mariani-silver]
+ * </pre>
+ */
+public class ServeCommand {
+    public static void main(String[] args) throws Exception {
+        final Options options = new Options(args);
+        Logger.getLogger(RenderEngine.class.getName()).setLevel(Level.WARNING);
+        final RenderEngine engine = RenderEngine.builder()
+                .mode(RenderCommand.enumOption(RenderEngine.Mode.class, options.get("mode", "mariani-silver")))
+                .priority(RenderJob.Priority.INTERACTIVE)
+                .build();
+        final TileServer.Builder builder = TileServer.builder()
+                .port(options.getInt("port", 8080))
+                .engine(engine)
+                .tileSize(options.getInt("tile-size", 256))
+                .bailout(options.getInt("bailout", 500))
+                .maxZoom(options.getInt("max-zoom", 100))
+                .cacheBytes((long) options.getInt("cache-mb", 256) << 20);
+        if (options.has("max-pending")) {
+            builder.maxPending(options.getInt("max-pending", 0));
+        }
+        final TileServer server = builder.build().start();
+        System.err.printf("serving http://localhost:%d/{z}/{x}/{y}.png, stats at http://localhost:%d/stats%n",
+                server.getPort(), server.getPort());
+        Thread.currentThread().join();
+    }
+}
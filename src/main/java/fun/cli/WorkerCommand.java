@@ -0,0 +1,21 @@
+package fun.cli;
+
+import fun.distributed.Worker;
+
+/**
+ * Computes tiles for a coordinator until it's finished, see {@link Worker}.
+ *
+ * <pre>
+ * worker [--host HOST] [--port N] [--threads N]
+ * </pre>
+ *
+ * Threads default to one per processor. If the coordinator isn't listening yet the worker keeps trying for a while.
+ */
+public class WorkerCommand {
+    public static void main(String[] args) throws Exception {
+        final Options options = new Options(args);
+        final Worker worker = new Worker(options.get("host", "localhost"), options.getInt("port", 9090),
+                options.getInt("threads", Runtime.getRuntime().availableProcessors()), 30_000);
+        worker.run();
+    }
+}
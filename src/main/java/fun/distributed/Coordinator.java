@@ -0,0 +1,370 @@
+package fun.distributed;
+
+import fun.IterationBuffer;
+import fun.RenderParameters;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Splits one render into tiles and farms them out to {@link Worker}s that connect to it over TCP, then stitches the
+ * iteration data they send back into one buffer.
+ *
+ * Each worker is kept two tiles per thread ahead, and gets another as each result comes in, so faster workers take
+ * more of the image. Once there are no unassigned tiles left, an idle worker steals the longest outstanding tile
+ * from another, and whichever result comes back first is used. If a worker disconnects, its unfinished tiles go back
+ * to the front of the queue for the others. Workers may join at any time before the render is finished.
+ */
+public final class Coordinator implements Closeable {
+    private static final Logger LOG = Logger.getLogger(Coordinator.class.getName());
+
+    private final RenderParameters parameters;
+    private final int width;
+    private final int height;
+    private final boolean seriesApproximation;
+    private final ServerSocket server;
+    private final IterationBuffer buffer;
+    private final Tile[] tiles;
+    private final Deque<Tile> queue = new ArrayDeque<>();
+    private final List<Connection> workers = new ArrayList<>();
+    private final List<Connection> allWorkers = new ArrayList<>();
+    private final CompletableFuture<IterationBuffer> result = new CompletableFuture<>();
+    private int remaining;
+    private int reassigned;
+    private int stolen;
+    private int duplicates;
+
+    /**
+     * @param port port to listen on for workers, 0 for any free one
+     */
+    public Coordinator(RenderParameters parameters, int width, int height, int tileSize, int port,
+                       boolean seriesApproximation) throws IOException {
+        this.parameters = parameters;
+        this.width = width;
+        this.height = height;
+        this.seriesApproximation = seriesApproximation;
+        this.buffer = new IterationBuffer(width, height, parameters.bailout);
+        final List<Tile> split = new ArrayList<>();
+        for (int y = 0; y < height; y += tileSize) {
+            for (int x = 0; x < width; x += tileSize) {
+                split.add(new Tile(split.size(), x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y)));
+            }
+        }
+        this.tiles = split.toArray(new Tile[0]);
+        this.queue.addAll(split);
+        this.remaining = tiles.length;
+        this.server = new ServerSocket(port);
+    }
+
+    public Coordinator start() {
+        final Thread acceptor = new Thread(this::accept, "coordinator");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Completes with the stitched iteration data once every tile is in.
+     */
+    public CompletableFuture<IterationBuffer> result() {
+        return result;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Connection worker : workers) {
+            worker.close();
+        }
+        server.close();
+    }
+
+    public int getTiles() {
+        return tiles.length;
+    }
+
+    /**
+     * Tiles put back on the queue because the worker they were with disconnected.
+     */
+    public synchronized int getReassigned() {
+        return reassigned;
+    }
+
+    /**
+     * Tiles also given to an idle worker while another still had them.
+     */
+    public synchronized int getStolen() {
+        return stolen;
+    }
+
+    /**
+     * Results thrown away because another worker's result for the same tile came first.
+     */
+    public synchronized int getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Tiles finished by each worker that's connected or has been, by name.
+     */
+    public synchronized String getWorkerSummary() {
+        final StringBuilder summary = new StringBuilder();
+        for (Connection worker : allWorkers) {
+            summary.append(String.format("  %s (%d threads): %d tiles%s%n", worker.name, worker.threads,
+                    worker.completed, worker.alive ? "" : ", disconnected"));
+        }
+        return summary.toString();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            final Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    LOG.log(Level.WARNING, "stopped accepting workers", e);
+                }
+                return;
+            }
+            try {
+                final Connection worker = new Connection(socket);
+                synchronized (this) {
+                    if (result.isDone()) {
+                        worker.done();
+                        continue;
+                    }
+                    workers.add(worker);
+                    allWorkers.add(worker);
+                    LOG.info(worker.name + " joined with " + worker.threads + " threads");
+                    dispatch();
+                }
+                final Thread reader = new Thread(() -> read(worker), "coordinator-" + worker.name);
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "worker failed to say hello", e);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void read(Connection worker) {
+        try {
+            while (true) {
+                if (worker.in.readByte() != Protocol.RESULT) {
+                    throw new IOException("expected a result");
+                }
+                final int id = worker.in.readInt();
+                final byte[] bytes = Protocol.readBytes(worker.in);
+                if (id < 0 || id >= tiles.length) {
+                    throw new IOException("no tile " + id);
+                }
+                final Tile tile = tiles[id];
+                final int[] iterations = new int[tile.width * tile.height];
+                final double[] modulusSquared = new double[tile.width * tile.height];
+                Protocol.decode(bytes, iterations.length, iterations, modulusSquared);
+                finished(worker, tile, iterations, modulusSquared);
+            }
+        } catch (IOException e) {
+            disconnected(worker, e);
+        }
+    }
+
+    private synchronized void finished(Connection worker, Tile tile, int[] iterations, double[] modulusSquared) {
+        worker.outstanding.remove(tile);
+        tile.holders.remove(worker);
+        if (tile.done) {
+            duplicates++;
+        } else {
+            tile.done = true;
+            worker.completed++;
+            for (int row = 0; row < tile.height; row++) {
+                final int offset = (tile.y + row) * width + tile.x;
+                System.arraycopy(iterations, row * tile.width, buffer.iterations, offset, tile.width);
+                System.arraycopy(modulusSquared, row * tile.width, buffer.modulusSquared, offset, tile.width);
+            }
+            // anyone else still working on it can stop counting it against their window
+            for (Connection holder : tile.holders) {
+                holder.outstanding.remove(tile);
+            }
+            tile.holders.clear();
+            remaining--;
+        }
+        if (remaining == 0) {
+            if (!result.isDone()) {
+                for (Connection each : workers) {
+                    each.done();
+                }
+                result.complete(buffer);
+            }
+            return;
+        }
+        dispatch();
+    }
+
+    private synchronized void disconnected(Connection worker, IOException cause) {
+        if (!worker.alive) {
+            return;
+        }
+        worker.alive = false;
+        workers.remove(worker);
+        worker.close();
+        if (result.isDone()) {
+            return;
+        }
+        LOG.warning(worker.name + " disconnected (" + cause + "), requeueing " + worker.outstanding.size() + " tiles");
+        for (Tile tile : worker.outstanding) {
+            tile.holders.remove(worker);
+            if (!tile.done && tile.holders.isEmpty()) {
+                queue.addFirst(tile);
+                reassigned++;
+            }
+        }
+        worker.outstanding.clear();
+        dispatch();
+    }
+
+    /**
+     * Top up every worker's window from the queue, or failing that by stealing.
+     */
+    private void dispatch() {
+        for (Connection worker : new ArrayList<>(workers)) {
+            while (worker.alive && worker.outstanding.size() < worker.window) {
+                final Tile tile = next(worker);
+                if (tile == null) {
+                    break;
+                }
+                tile.holders.add(worker);
+                tile.issued = System.nanoTime();
+                worker.outstanding.add(tile);
+                try {
+                    Protocol.writeTile(worker.out, tile.id, tile.x, tile.y, tile.width, tile.height);
+                    worker.out.flush();
+                } catch (IOException e) {
+                    disconnected(worker, e);
+                }
+            }
+        }
+    }
+
+    private Tile next(Connection worker) {
+        for (Tile tile; (tile = queue.poll()) != null; ) {
+            if (!tile.done) {
+                return tile;
+            }
+        }
+        Tile oldest = null;
+        for (Connection other : workers) {
+            if (other == worker) {
+                continue;
+            }
+            for (Tile tile : other.outstanding) {
+                if (!tile.done && tile.holders.size() == 1 && (oldest == null || tile.issued < oldest.issued)) {
+                    oldest = tile;
+                }
+            }
+        }
+        if (oldest != null) {
+            stolen++;
+        }
+        return oldest;
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static final class Tile {
+        final int id;
+        final int x;
+        final int y;
+        final int width;
+        final int height;
+        final Set<Connection> holders = new LinkedHashSet<>();
+        boolean done;
+        long issued;
+
+        Tile(int id, int x, int y, int width, int height) {
+            this.id = id;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final class Connection {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+        final String name;
+        final int threads;
+        final int window;
+        final Set<Tile> outstanding = new LinkedHashSet<>();
+        int completed;
+        boolean alive = true;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != Protocol.MAGIC) {
+                throw new IOException("not a worker");
+            }
+            this.threads = Math.max(1, in.readInt());
+            this.window = 2 * threads;
+            this.name = socket.getRemoteSocketAddress().toString();
+            out.writeByte(Protocol.JOB);
+            out.writeUTF(parameters.preciseCenter.real.toString());
+            out.writeUTF(parameters.preciseCenter.imaginary.toString());
+            out.writeDouble(parameters.width);
+            out.writeInt(parameters.bailout);
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeBoolean(seriesApproximation);
+            out.flush();
+        }
+
+        void done() {
+            try {
+                out.writeByte(Protocol.DONE);
+                out.flush();
+            } catch (IOException ignored) {
+                // it's finished with either way
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (SocketException ignored) {
+            } catch (IOException e) {
+                LOG.log(Level.FINE, "closing " + name, e);
+            }
+        }
+    }
+}
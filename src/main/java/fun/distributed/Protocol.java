@@ -0,0 +1,116 @@
+package fun.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The messages between a {@link Coordinator} and its {@link Worker}s, over a plain socket in each direction.
+ *
+ * <pre>
+ * worker      -> coordinator: HELLO magic threads
+ * coordinator -> worker:      JOB real imaginary width bailout imageWidth imageHeight seriesApproximation
+ * coordinator -> worker:      TILE id x y width height      (any number, as the worker has room for them)
+ * worker      -> coordinator: RESULT id length bytes        (one per TILE, in any order)
+ * coordinator -> worker:      DONE
+ * </pre>
+ *
+ * A result is a tile's iteration counts followed by its final |z|^2 values as floats, deflated. Floats are plenty for
+ * colouring, and halve what goes over the wire.
+ */
+final class Protocol {
+    static final int MAGIC = 0x4d414e44; // "MAND"
+    static final byte JOB = 'J';
+    static final byte TILE = 'T';
+    static final byte RESULT = 'R';
+    static final byte DONE = 'D';
+
+    private Protocol() {
+    }
+
+    static byte[] encode(int[] iterations, double[] modulusSquared, int count) {
+        final ByteBuffer raw = ByteBuffer.allocate(count * (Integer.BYTES + Float.BYTES));
+        for (int i = 0; i < count; i++) {
+            raw.putInt(iterations[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            raw.putFloat((float) modulusSquared[i]);
+        }
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(raw.array());
+        deflater.finish();
+        final byte[] out = new byte[raw.capacity() + 64];
+        int length = 0;
+        while (!deflater.finished()) {
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        deflater.end();
+        final byte[] compressed = new byte[length];
+        System.arraycopy(out, 0, compressed, 0, length);
+        return compressed;
+    }
+
+    static void decode(byte[] compressed, int count, int[] iterations, double[] modulusSquared) throws IOException {
+        final byte[] raw = new byte[count * (Integer.BYTES + Float.BYTES)];
+        final Inflater inflater = new Inflater();
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                final int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("truncated tile result");
+                }
+                length += inflated;
+            }
+            // the stream should end exactly here, and the bytes with it, or it was for some other tile
+            if (inflater.inflate(new byte[1]) > 0 || inflater.getRemaining() > 0) {
+                throw new IOException("tile result longer than " + count + " points");
+            }
+            if (length != raw.length || !inflater.finished()) {
+                throw new IOException("truncated tile result");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt tile result", e);
+        } finally {
+            inflater.end();
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(raw);
+        for (int i = 0; i < count; i++) {
+            iterations[i] = buffer.getInt();
+        }
+        for (int i = 0; i < count; i++) {
+            modulusSquared[i] = buffer.getFloat();
+        }
+    }
+
+    static void writeTile(DataOutputStream out, int id, int x, int y, int width, int height) throws IOException {
+        out.writeByte(TILE);
+        out.writeInt(id);
+        out.writeInt(x);
+        out.writeInt(y);
+        out.writeInt(width);
+        out.writeInt(height);
+    }
+
+    static void writeResult(DataOutputStream out, int id, byte[] result) throws IOException {
+        out.writeByte(RESULT);
+        out.writeInt(id);
+        out.writeInt(result.length);
+        out.write(result);
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > 1 << 28) {
+            throw new IOException("bad result length " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
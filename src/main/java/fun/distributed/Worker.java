@@ -0,0 +1,141 @@
+package fun.distributed;
+
+import fun.BatchKernel;
+import fun.BigComplex;
+import fun.CancellationToken;
+import fun.FloatBatchKernel;
+import fun.PixelKernel;
+import fun.PrecisionTier;
+import fun.RenderParameters;
+import fun.RenderScheduler;
+import fun.Viewport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Computes tiles for a {@link Coordinator}. It connects, is told the whole view, picks the arithmetic for it the same
+ * way a local render would, and then iterates whatever tiles it's sent on its own threads until the coordinator says
+ * it's done.
+ */
+public final class Worker {
+    private static final Logger LOG = Logger.getLogger(Worker.class.getName());
+
+    private final String host;
+    private final int port;
+    private final int threads;
+    private final long connectTimeoutMillis;
+    private final AtomicInteger completed = new AtomicInteger();
+
+    /**
+     * @param connectTimeoutMillis how long to keep trying if the coordinator isn't listening yet
+     */
+    public Worker(String host, int port, int threads, long connectTimeoutMillis) {
+        this.host = host;
+        this.port = port;
+        this.threads = threads;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    /**
+     * Work until the coordinator is finished or goes away.
+     */
+    public void run() throws IOException, InterruptedException {
+        final RenderScheduler scheduler = new RenderScheduler(threads);
+        try (Socket socket = connect()) {
+            socket.setTcpNoDelay(true);
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(Protocol.MAGIC);
+            out.writeInt(threads);
+            out.flush();
+            if (in.readByte() != Protocol.JOB) {
+                throw new IOException("expected a job");
+            }
+            final BigComplex centre = new BigComplex(new BigDecimal(in.readUTF()), new BigDecimal(in.readUTF()));
+            final RenderParameters parameters = new RenderParameters(centre, in.readDouble(), in.readInt());
+            final Viewport viewport = new Viewport(parameters, in.readInt(), in.readInt());
+            final boolean seriesApproximation = in.readBoolean();
+            final PrecisionTier tier = PrecisionTier.choose(viewport, parameters.bailout);
+            final PixelKernel kernel = tier.kernelFor(viewport, parameters.bailout, BatchKernel.best(),
+                    FloatBatchKernel.best(), seriesApproximation);
+            LOG.info(String.format("%dx%d %s job, %d threads", viewport.width, viewport.height, tier, threads));
+
+            final CancellationToken token = new CancellationToken();
+            while (true) {
+                final byte message;
+                try {
+                    message = in.readByte();
+                } catch (EOFException e) {
+                    LOG.info("coordinator went away");
+                    break;
+                }
+                if (message == Protocol.DONE) {
+                    break;
+                }
+                if (message != Protocol.TILE) {
+                    throw new IOException("unexpected message " + message);
+                }
+                final int id = in.readInt(), x = in.readInt(), y = in.readInt();
+                final int width = in.readInt(), height = in.readInt();
+                scheduler.submit(token, 0, () -> {
+                    final byte[] result = compute(kernel, x, y, width, height);
+                    try {
+                        synchronized (out) {
+                            Protocol.writeResult(out, id, result);
+                            out.flush();
+                        }
+                        completed.incrementAndGet();
+                    } catch (IOException e) {
+                        scheduler.cancel(token);
+                    }
+                });
+            }
+            scheduler.cancel(token);
+        } finally {
+            scheduler.shutdown();
+        }
+        LOG.info("computed " + completed.get() + " tiles");
+    }
+
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    private static byte[] compute(PixelKernel kernel, int x, int y, int width, int height) {
+        final int[] iterations = new int[width * height];
+        final double[] modulusSquared = new double[width * height];
+        final int[] rowIterations = new int[width];
+        final double[] rowModulusSquared = new double[width];
+        for (int row = 0; row < height; row++) {
+            kernel.iterate(x, y + row, 1, 0, width, rowIterations, rowModulusSquared);
+            System.arraycopy(rowIterations, 0, iterations, row * width, width);
+            System.arraycopy(rowModulusSquared, 0, modulusSquared, row * width, width);
+        }
+        return Protocol.encode(iterations, modulusSquared, iterations.length);
+    }
+
+    private Socket connect() throws IOException, InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(connectTimeoutMillis);
+        while (true) {
+            try {
+                return new Socket(host, port);
+            } catch (ConnectException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(200);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package fun.gui;
+
+import fun.Histogram;
+
+/**
+ * Picks the next bailout for a view by watching the histogram's top bucket, the points that reached the bailout
+ * without escaping. Each finished rendering doubles the bailout, for as long as doing so still lets a useful share of
+ * those points escape; once the top bucket stops shrinking, what's left is the set itself and it's time to stop.
+ */
+final class AutoBailout {
+    static final int MAX_BAILOUT = 1 << 20;
+    /**
+     * The share of the top bucket that the last doubling must have let escape to be worth doubling again.
+     */
+    private static final double MIN_SHRINK = 0.01;
+
+    private long lastTop = -1;
+
+    /**
+     * The bailout to render the same view at next, or -1 if it should stay as it is.
+     */
+    int next(Histogram histogram, int bailout) {
+        final long top = histogram.valueAt(bailout);
+        final long previous = lastTop;
+        lastTop = top;
+        if (top == 0 || bailout >= MAX_BAILOUT) {
+            return -1;
+        }
+        if (previous >= 0 && previous - top < previous * MIN_SHRINK) {
+            return -1;
+        }
+        return Math.min(MAX_BAILOUT, bailout * 2);
+    }
+
+    /**
+     * Forget the views so far, for a new view.
+     */
+    void reset() {
+        lastTop = -1;
+    }
+}
@@ -1,5 +1,11 @@
 package fun.gui;
 
+import fun.ColourMap;
+import fun.Palette;
+import fun.RenderEngine;
+import fun.RenderParameters;
+import fun.io.BandWriter;
+
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
@@ -9,33 +15,98 @@ import java.io.File;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class ControlPanel extends JPanel {
+    private static final Logger LOG = Logger.getLogger(ControlPanel.class.getName());
+    private static final long BAND_BYTES = 64 << 20;
+
     private final JProgressBar progressBar;
     private final BufferedImage image;
+    private final MandelbrotWindow window;
+    private final JComboBox<String> paletteChoice = new JComboBox<>(Palette.names().toArray(new String[0]));
+    private final JCheckBox equaliseBox = new JCheckBox("Equalise");
     private final  JLabel queueLengthLabel = new JLabel("");
+    private final JLabel cacheLabel = new JLabel("");
 
-    public ControlPanel(final BufferedImage image) {
+    public ControlPanel(final BufferedImage image, MandelbrotWindow window) {
         this.image = image;
+        this.window = window;
         progressBar = new JProgressBar(0, image.getWidth() * image.getHeight());
         setLayout(new FlowLayout());
         final Button saveButton = new Button("Save");
         saveButton.addActionListener(this::saveImage);
         add(saveButton);
+        final Button saveLargeButton = new Button("Save large...");
+        saveLargeButton.addActionListener(this::saveLargeImage);
+        add(saveLargeButton);
+        paletteChoice.addActionListener(this::colouringChanged);
+        add(paletteChoice);
+        equaliseBox.addActionListener(this::colouringChanged);
+        add(equaliseBox);
         add(progressBar);
         add(queueLengthLabel);
+        add(cacheLabel);
     }
 
     private void saveImage(ActionEvent event) {
+        final String fileName = fileName("");
         try {
-            LocalDateTime now = LocalDateTime.now();
-            String stamp = DateTimeFormatter.ofPattern("YYYYMMdd-HHmmss").format(now);
-            ImageIO.write(image, "png", new File("mandelbrot-" + stamp + ".png"));
+            ImageIO.write(image, "png", new File(fileName));
         } catch (IOException e) {
-            e.printStackTrace();
+            LOG.log(Level.WARNING, "couldn't save " + fileName, e);
+            JOptionPane.showMessageDialog(this, "Couldn't save " + fileName + ": " + e);
         }
     }
 
+    private void colouringChanged(ActionEvent event) {
+        window.setColouring(Palette.named((String) paletteChoice.getSelectedItem()), equaliseBox.isSelected());
+    }
+
+    /**
+     * Render the view on screen again at any size, straight to a file in bands, in the background.
+     */
+    private void saveLargeImage(ActionEvent event) {
+        final String size = JOptionPane.showInputDialog(this, "Width x height", "7680x4320");
+        if (size == null) {
+            return;
+        }
+        final String[] dimensions = size.toLowerCase().split("x");
+        final int width, height;
+        try {
+            width = Integer.parseInt(dimensions[0].trim());
+            height = Integer.parseInt(dimensions[dimensions.length - 1].trim());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Not a size: " + size);
+            return;
+        }
+        final RenderParameters parameters = window.getRenderParameters();
+        // an equalised palette keeps the spread worked out on screen, which suits the same view at any size
+        final ColourMap colours = window.getColours();
+        final String fileName = fileName("-" + width + "x" + height);
+        new Thread(() -> {
+            String message;
+            try (BandWriter writer = new BandWriter(fileName, width, height, null, colours)) {
+                RenderEngine.builder().mode(RenderEngine.Mode.MARIANI_SILVER).build()
+                        .renderBands(parameters, width, height, BandWriter.bandHeight(width, BAND_BYTES), writer)
+                        .get();
+                message = "Saved " + fileName;
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "couldn't save " + fileName, e);
+                message = "Couldn't save " + fileName + ": " + e;
+            }
+            final String done = message;
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, done));
+        }, "save-large").start();
+    }
+
+    private static String fileName(String suffix) {
+        LocalDateTime now = LocalDateTime.now();
+        String stamp = DateTimeFormatter.ofPattern("YYYYMMdd-HHmmss").format(now);
+        return "mandelbrot-" + stamp + suffix + ".png";
+    }
+
     public void setProgress(int progress) {
         this.progressBar.setValue(progress);
     }
@@ -43,4 +114,8 @@ public class ControlPanel extends JPanel {
     public void setQueueLength(int queueLength) {
         this.queueLengthLabel.setText(Integer.toString(queueLength));
     }
+
+    public void setCacheStatistics(String statistics) {
+        this.cacheLabel.setText(statistics);
+    }
 }
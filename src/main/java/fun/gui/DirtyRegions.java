@@ -0,0 +1,87 @@
+package fun.gui;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Parts of an image that have changed since the display last caught up, on a grid of cells. Any thread can mark
+ * rectangles, which only sets a flag per cell, and the display drains them as a few rectangles to repaint: runs of
+ * dirty cells along each row of the grid, merged with the run above wherever they line up.
+ */
+final class DirtyRegions {
+    private final int width;
+    private final int height;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final AtomicIntegerArray dirty;
+
+    DirtyRegions(int width, int height, int cellSize) {
+        this.width = width;
+        this.height = height;
+        this.cellSize = cellSize;
+        this.columns = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        this.dirty = new AtomicIntegerArray(columns * rows);
+    }
+
+    void mark(int x, int y, int w, int h) {
+        final int left = Math.max(0, x) / cellSize, right = Math.min(width - 1, x + w - 1) / cellSize;
+        final int top = Math.max(0, y) / cellSize, bottom = Math.min(height - 1, y + h - 1) / cellSize;
+        for (int row = top; row <= bottom; row++) {
+            for (int column = left; column <= right; column++) {
+                // most marks land on cells already marked, which a read is enough to see
+                if (dirty.get(row * columns + column) == 0) {
+                    dirty.set(row * columns + column, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Everything marked since the last call, in pixels, clearing it.
+     */
+    List<Rectangle> drain() {
+        final List<Rectangle> regions = new ArrayList<>();
+        List<Rectangle> above = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            final List<Rectangle> runs = new ArrayList<>();
+            for (int column = 0; column < columns; ) {
+                if (dirty.getAndSet(row * columns + column, 0) == 0) {
+                    column++;
+                    continue;
+                }
+                final int start = column++;
+                while (column < columns && dirty.getAndSet(row * columns + column, 0) != 0) {
+                    column++;
+                }
+                // column is now past the run, on a clean cell that's been looked at, or off the end
+                final Rectangle run = merge(above, start * cellSize, Math.min(width, column * cellSize), row);
+                runs.add(run);
+                if (run.y == row * cellSize) {
+                    regions.add(run);
+                }
+                column++;
+            }
+            above = runs;
+        }
+        return regions;
+    }
+
+    /**
+     * The run from {@code left} to {@code right} on a row, as the rectangle of the same run on the row above grown
+     * down to this one if there is one, or as a rectangle of its own.
+     */
+    private Rectangle merge(List<Rectangle> above, int left, int right, int row) {
+        final int bottom = Math.min(height, (row + 1) * cellSize);
+        for (Rectangle rectangle : above) {
+            if (rectangle.x == left && rectangle.x + rectangle.width == right) {
+                rectangle.height = bottom - rectangle.y;
+                return rectangle;
+            }
+        }
+        return new Rectangle(left, row * cellSize, right - left, bottom - row * cellSize);
+    }
+}
@@ -1,14 +1,15 @@
 package fun.gui;
 
-import fun.Complex;
-import fun.Histogram;
+import fun.BigComplex;
+import fun.FractalKernel;
 import fun.RenderParameters;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-
-import static java.lang.Math.log;
+import java.awt.image.DataBufferInt;
+import java.math.BigDecimal;
+import java.util.Arrays;
 
 public class InfoPanel extends JPanel {
     private final JLabel xLabel = new JLabel("Real:");
@@ -20,9 +21,15 @@ public class InfoPanel extends JPanel {
     private final JLabel bailoutLabel = new JLabel("Bailout:");
     private final JTextField bailoutField = new JTextField("100");
     private final JButton goButton = new JButton("Go!");
+    private final JCheckBox autoBailoutBox = new JCheckBox("Auto bailout");
+    private final JComboBox<String> fractalBox = new JComboBox<>(
+            new String[]{"mandelbrot", "julia:-0.8,0.156", "multibrot:3", "burning-ship"});
     private final BufferedImage histogramImage = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
     private final JPanel histogramPanel = MandelbrotWindow.createDrawPanel(
             histogramImage.getWidth(), histogramImage.getHeight(), histogramImage);
+    private final int[] histogramPixels = ((DataBufferInt) histogramImage.getRaster().getDataBuffer()).getData();
+    private final long[] histogramCounts = new long[histogramImage.getWidth()];
+    private long tallestColumn;
 
     private static GridBagConstraints labelConstraints(int column, int row) {
         GridBagConstraints constraints = new GridBagConstraints();
@@ -115,46 +122,85 @@ public class InfoPanel extends JPanel {
         this.add(yField, textConstraints(1, 1));
         this.add(bailoutLabel, labelConstraints(2, 1));
         this.add(bailoutField, textConstraints(3, 1));
+        this.add(fractalBox, textConstraints(1, 2));
+        this.add(autoBailoutBox, textConstraints(3, 2));
         this.add(histogramPanel, histogramConstraints(4, 0));
+        fractalBox.setEditable(true);
         goButton.addActionListener((event) -> window.startNewRendering(getRenderParameters()));
     }
 
     public RenderParameters getRenderParameters() {
-        double x = Double.parseDouble(xField.getText());
-        double y = Double.parseDouble(yField.getText());
+        BigDecimal x = new BigDecimal(xField.getText().trim());
+        BigDecimal y = new BigDecimal(yField.getText().trim());
         double scale = Double.parseDouble(scaleField.getText());
         int bailout = Integer.parseInt(bailoutField.getText());
-        return new RenderParameters(new Complex(x, y), scale, bailout);
+        return new RenderParameters(new BigComplex(x, y), scale, bailout, getFractal());
     }
 
     public void setFromRenderParameters(RenderParameters parameters) {
-        xField.setText(Double.toString(parameters.center.real));
-        yField.setText(Double.toString(parameters.center.imaginary));
+        xField.setText(parameters.preciseCenter.real.toString());
+        yField.setText(parameters.preciseCenter.imaginary.toString());
         scaleField.setText(Double.toString(parameters.width));
         bailoutField.setText(Integer.toString(parameters.bailout));
+        fractalBox.setSelectedItem(parameters.fractal.name());
+    }
+
+    /**
+     * The fractal picked or typed in, see {@link FractalKernel#named}.
+     */
+    public FractalKernel getFractal() {
+        return FractalKernel.named((String) fractalBox.getSelectedItem());
     }
 
     public int getBailout() {
         return Integer.valueOf(bailoutField.getText());
     }
 
-    public void updateHistogram(Histogram h) {
-        int max = h.max();
-        //Histogram bucketed = h.bucketed(v -> v * histogramImage.getWidth() / (max + 1));
-        double logMax = log(max);
-        Histogram bucketedLog = h.bucketed(v -> (int)(log(v+1) *histogramImage.getWidth() / logMax));
-
-        double logMaxHeight = log(bucketedLog.height() + 1);
-        for (int x = 0; x < histogramImage.getWidth(); x++) {
-            double logHeight = (int)(bucketedLog.valueAt(x) + 1);
-           int height = bucketedLog.valueAt(x) * histogramImage.getHeight() / bucketedLog.height();
-//           int height = (int) (logHeight * histogramImage.getHeight() / logMaxHeight);
-            for (int y = 0; y < histogramImage.getHeight(); y++) {
-                final int color = (y <= height) ? Color.BLACK.getRGB() : Color.WHITE.getRGB();
-                histogramImage.setRGB(x, histogramImage.getHeight() - 1 - y, color);
+    /**
+     * Whether to keep raising the bailout of a finished view while that still lets more points escape.
+     */
+    public boolean isAutoBailout() {
+        return autoBailoutBox.isSelected();
+    }
+
+    public int getHistogramColumns() {
+        return histogramCounts.length;
+    }
+
+    /**
+     * Empty the histogram, for a new rendering.
+     */
+    public void clearHistogram() {
+        Arrays.fill(histogramCounts, 0);
+        tallestColumn = 0;
+        Arrays.fill(histogramPixels, Color.WHITE.getRGB());
+        histogramPanel.repaint();
+    }
+
+    /**
+     * Add points to the histogram's columns, and redraw those that changed, or all of them if the tallest one did,
+     * since they're drawn to its scale.
+     */
+    public void addToHistogram(long[] points) {
+        final long tallest = tallestColumn;
+        for (int x = 0; x < points.length; x++) {
+            histogramCounts[x] += points[x];
+            tallestColumn = Math.max(tallestColumn, histogramCounts[x]);
+        }
+        for (int x = 0; x < points.length; x++) {
+            if (points[x] != 0 || tallestColumn != tallest) {
+                drawColumn(x);
             }
         }
         histogramPanel.repaint();
     }
+
+    private void drawColumn(int x) {
+        final int width = histogramImage.getWidth(), height = histogramImage.getHeight();
+        final int bar = (int) (histogramCounts[x] * height / Math.max(1, tallestColumn));
+        for (int y = 0; y < height; y++) {
+            histogramPixels[(height - 1 - y) * width + x] = y <= bar ? Color.BLACK.getRGB() : Color.WHITE.getRGB();
+        }
+    }
 }
 
@@ -0,0 +1,109 @@
+package fun.gui;
+
+import fun.RenderListener;
+import fun.Rendering;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the window up to date with a rendering as it goes. Calculator threads only mark what they've painted and
+ * count points into histogram columns; a Swing timer then catches up, on the event dispatch thread, up to 60 times a
+ * second, repainting just the regions that changed and adding just the new points to the histogram. When nothing
+ * has changed a tick costs next to nothing, so the display doesn't compete with the rendering for the processors.
+ */
+final class LiveDisplay {
+    private static final int FRAME_MILLIS = 1000 / 60;
+    /**
+     * Ticks between updates of the progress bar, queue length and cache statistics, which nobody reads at 60 Hz.
+     */
+    private static final int STATUS_TICKS = 15;
+
+    private final JComponent canvas;
+    private final InfoPanel infoPanel;
+    private final Runnable status;
+    private final DirtyRegions dirty;
+    private final Timer timer;
+    private volatile Feed feed;
+    private int ticks;
+
+    /**
+     * @param status updates the rest of the window, a few times a second
+     */
+    LiveDisplay(JComponent canvas, int width, int height, InfoPanel infoPanel, Runnable status) {
+        this.canvas = canvas;
+        this.infoPanel = infoPanel;
+        this.status = status;
+        this.dirty = new DirtyRegions(width, height, 32);
+        this.timer = new Timer(FRAME_MILLIS, event -> tick());
+        timer.setCoalesce(true);
+    }
+
+    void start() {
+        timer.start();
+    }
+
+    /**
+     * Follow a rendering that's about to start, instead of whichever it was before. On the event dispatch thread.
+     */
+    void follow(Rendering rendering) {
+        final Feed next = new Feed(rendering.getRenderParameters().bailout, infoPanel.getHistogramColumns());
+        feed = next;
+        infoPanel.clearHistogram();
+        rendering.setListener(next);
+    }
+
+    private void tick() {
+        for (Rectangle region : dirty.drain()) {
+            canvas.repaint(region);
+        }
+        final long[] points = feed.drain();
+        if (points != null) {
+            infoPanel.addToHistogram(points);
+        }
+        if (++ticks % STATUS_TICKS == 0) {
+            status.run();
+        }
+    }
+
+    /**
+     * What one rendering has told the display and it hasn't caught up with yet. Histogram columns are on a log
+     * scale up to the rendering's bailout, so that a point's column never changes as more come in.
+     */
+    private final class Feed implements RenderListener {
+        private final LongAdder[] columns;
+        private final double columnsPerLog;
+
+        Feed(int bailout, int columns) {
+            this.columns = new LongAdder[columns];
+            for (int i = 0; i < columns; i++) {
+                this.columns[i] = new LongAdder();
+            }
+            this.columnsPerLog = columns / Math.log(bailout + 1);
+        }
+
+        @Override
+        public void painted(int x, int y, int width, int height) {
+            dirty.mark(x, y, width, height);
+        }
+
+        @Override
+        public void counted(int iterations) {
+            columns[Math.min(columns.length - 1, (int) (Math.log(iterations + 1) * columnsPerLog))].increment();
+        }
+
+        /**
+         * Points per column counted since the last call, or null if there are none.
+         */
+        long[] drain() {
+            final long[] points = new long[columns.length];
+            boolean any = false;
+            for (int i = 0; i < columns.length; i++) {
+                points[i] = columns[i].sumThenReset();
+                any |= points[i] != 0;
+            }
+            return any ? points : null;
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package fun.gui;
 
 
-import fun.Complex;
+import fun.BigComplex;
+import fun.ColourMap;
+import fun.Palette;
 import fun.RenderParameters;
 import fun.Rendering;
+import fun.TileCache;
 
 import javax.swing.*;
 import java.awt.*;
@@ -11,8 +14,6 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class MandelbrotWindow extends JFrame {
@@ -21,20 +22,41 @@ public class MandelbrotWindow extends JFrame {
     private final AtomicReference<Rendering> renderingRef;
     private final InfoPanel infoPanel = new InfoPanel(this);
     private final ControlPanel controlPanel;
+    private final TileCache tileCache;
+    private final LiveDisplay display;
+    private Palette palette = Palette.CLASSIC;
+    private boolean equalise = false;
+    private final AutoBailout autoBailout = new AutoBailout();
+    private Rendering deepened;
+
+    public static void open(int imageWidth, int imageHeight) throws IOException, InterruptedException {
+        open(imageWidth, imageHeight, null);
+    }
+
+    /**
+     * @param tileCache keeps finished tiles for zooming back out and revisits, or null for none
+     */
+    public static void open(int imageWidth, int imageHeight, TileCache tileCache)
+            throws IOException, InterruptedException {
+        new MandelbrotWindow(imageWidth, imageHeight, tileCache).setVisible(true);
+    }
 
-    public MandelbrotWindow(int imageWidth, int imageHeight) throws IOException, InterruptedException {
+    public MandelbrotWindow(int imageWidth, int imageHeight, TileCache tileCache)
+            throws IOException, InterruptedException {
+        this.tileCache = tileCache;
         image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
         setPreferredSize(new Dimension(600, 600));
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         drawPanel = createDrawPanel(imageWidth, imageHeight, image);
-        controlPanel = new ControlPanel(image);
         JScrollPane scroller = new JScrollPane(drawPanel);
         scroller.setMinimumSize(new Dimension(400, 400));
         scroller.setPreferredSize(new Dimension(400, 400));
 
-        this.renderingRef = new AtomicReference<>(
-                new Rendering(RenderParameters.INITIAL, image).startRendering()
-        );
+        controlPanel = new ControlPanel(image, this);
+        display = new LiveDisplay(drawPanel, imageWidth, imageHeight, infoPanel, this::updateStatus);
+        final Rendering initial = new Rendering(RenderParameters.INITIAL, image, tileCache, null);
+        display.follow(initial);
+        this.renderingRef = new AtomicReference<>(initial.startRendering());
 
         getContentPane().setLayout(new BorderLayout());
         getContentPane().add(infoPanel, BorderLayout.NORTH);
@@ -45,13 +67,20 @@ public class MandelbrotWindow extends JFrame {
         this.pack();
 
         drawPanel.addMouseListener(clickListener());
-        Runnable task = () -> {
-            drawPanel.repaint();
-            controlPanel.setProgress(renderingRef.get().getProgress());
-            controlPanel.setQueueLength(renderingRef.get().getQueueLength());
-            infoPanel.updateHistogram(renderingRef.get().getHistogram());
-        };
-        Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(task, 1L, 1L, TimeUnit.SECONDS);
+        display.start();
+    }
+
+    /**
+     * Progress, queue length and cache statistics, and whether to deepen a finished view. On the event dispatch
+     * thread.
+     */
+    private void updateStatus() {
+        controlPanel.setProgress(renderingRef.get().getProgress());
+        controlPanel.setQueueLength(renderingRef.get().getQueueLength());
+        if (tileCache != null) {
+            controlPanel.setCacheStatistics(tileCache.toString());
+        }
+        deepen();
     }
 
     private MouseListener clickListener() {
@@ -60,10 +89,12 @@ public class MandelbrotWindow extends JFrame {
             public void mouseClicked(MouseEvent event) {
                 boolean zoomOut = event.isMetaDown();
                 Rendering oldRender = renderingRef.get();
-                Complex center = oldRender.whereWasClick(event);
-                double newWidth = oldRender.getWidth() * (zoomOut ? 3.0 : 0.333);
+                BigComplex center = oldRender.whereWasClickPrecisely(event);
+                // exactly a third, so that zooming back out returns to the same scale and finds its tiles cached
+                double newWidth = zoomOut ? oldRender.getWidth() * 3.0 : oldRender.getWidth() / 3.0;
                 int newBail = infoPanel.getBailout();
-                RenderParameters parameters = new RenderParameters(center, newWidth, newBail);
+                RenderParameters parameters = new RenderParameters(center, newWidth, newBail,
+                        oldRender.getRenderParameters().fractal);
                 startNewRendering(parameters);
             }
 
@@ -108,11 +139,54 @@ public class MandelbrotWindow extends JFrame {
     }
 
     public void startNewRendering(RenderParameters renderParameters) {
+        autoBailout.reset();
+        render(renderParameters);
+    }
+
+    private void render(RenderParameters renderParameters) {
         Rendering oldRender = renderingRef.get();
         oldRender.stop();
         controlPanel.setProgress(0);
         controlPanel.setQueueLength(0);
-        renderingRef.set(new Rendering(renderParameters, image).startRendering());
+        final Rendering rendering = new Rendering(renderParameters, image, tileCache, oldRender);
+        rendering.setColouring(palette, equalise);
+        display.follow(rendering);
+        renderingRef.set(rendering.startRendering());
         infoPanel.setFromRenderParameters(renderParameters);
     }
+
+    /**
+     * With auto bailout on, render the view again at a higher bailout once it's finished, if that looks worthwhile.
+     * Points that escaped are kept, and the rest carry on from where they stopped.
+     */
+    private void deepen() {
+        final Rendering rendering = renderingRef.get();
+        if (!infoPanel.isAutoBailout() || rendering == deepened || !rendering.getMetrics().isFinished()
+                || rendering.getMetrics().isCancelled()) {
+            return;
+        }
+        deepened = rendering;
+        final RenderParameters parameters = rendering.getRenderParameters();
+        final int bailout = autoBailout.next(rendering.getHistogram(), parameters.bailout);
+        if (bailout > 0) {
+            render(new RenderParameters(parameters.preciseCenter, parameters.width, bailout, parameters.fractal));
+        }
+    }
+
+    /**
+     * Recolour what's on screen and colour everything after it this way, without computing anything again.
+     */
+    public void setColouring(Palette palette, boolean equalise) {
+        this.palette = palette;
+        this.equalise = equalise;
+        renderingRef.get().setColouring(palette, equalise);
+    }
+
+    public ColourMap getColours() {
+        return renderingRef.get().getColours();
+    }
+
+    public RenderParameters getRenderParameters() {
+        return renderingRef.get().getRenderParameters();
+    }
 }
@@ -0,0 +1,124 @@
+package fun.io;
+
+import fun.ColourMap;
+import fun.Coloring;
+import fun.Histogram;
+import fun.IterationBuffer;
+import fun.IterationFile;
+import fun.Palette;
+import fun.RenderEngine;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Colours the bands of a {@link RenderEngine#renderBands} render and streams them straight into an image file, a row
+ * at a time, so the image is never held in memory whatever its size. Optionally keeps the iteration data too, in an
+ * {@link IterationFile}.
+ *
+ * Colouring with an equalised palette needs every point first, so it takes two passes: render into an
+ * {@link IterationFile}, then {@link #recolour} from it.
+ */
+public final class BandWriter implements RenderEngine.BandSink, Closeable {
+    private final OutputStream out;
+    private final PngWriter png;
+    private final int width;
+    private final IterationFile iterations;
+    private final ColourMap colours;
+    private final int[] row;
+    private volatile int rowsWritten;
+
+    /**
+     * @param fileName   PNG if it ends in ".png", raw 8 bit RGB otherwise, as for {@link ImageFiles}
+     * @param iterations where to keep the iteration data as well, or null to drop it once coloured
+     */
+    public BandWriter(String fileName, int width, int height, IterationFile iterations, ColourMap colours)
+            throws IOException {
+        this.out = new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16);
+        this.png = ImageFiles.isPng(fileName) ? new PngWriter(out, width, height) : null;
+        this.width = width;
+        this.iterations = iterations;
+        this.colours = colours;
+        this.row = new int[width];
+    }
+
+    @Override
+    public void accept(int firstRow, IterationBuffer band) throws IOException {
+        if (iterations != null) {
+            iterations.write(firstRow, band);
+        }
+        for (int y = 0; y < band.height; y++) {
+            for (int x = 0, i = y * width; x < width; x++, i++) {
+                row[x] = colours.argb(Coloring.smooth(band.iterations[i], band.modulusSquared[i], band.bailout));
+            }
+            if (png != null) {
+                png.writeRow(row, 0);
+            } else {
+                ImageFiles.writeRawRows(row, width, 1, out);
+            }
+        }
+        rowsWritten = firstRow + band.height;
+    }
+
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (png != null) {
+                png.close();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Colour iteration data kept from an earlier render into an image file, without iterating anything.
+     */
+    public static void recolour(IterationFile iterations, String fileName, Palette palette, boolean equalise,
+                                int bandHeight) throws IOException {
+        final int bailout = iterations.parameters.bailout;
+        final IterationBuffer band = new IterationBuffer(iterations.width, bandHeight, bailout);
+        ColourMap colours = palette;
+        if (equalise) {
+            final Histogram histogram = new Histogram(bailout + 1, 1);
+            for (int firstRow = 0; firstRow < iterations.height; firstRow += bandHeight) {
+                final IterationBuffer rows = rows(iterations, firstRow, band);
+                for (int i = 0; i < rows.width * rows.height; i++) {
+                    histogram.increment(Math.min(rows.iterations[i], bailout));
+                }
+            }
+            colours = palette.equalised(histogram);
+        }
+        try (BandWriter writer = new BandWriter(fileName, iterations.width, iterations.height, null, colours)) {
+            for (int firstRow = 0; firstRow < iterations.height; firstRow += bandHeight) {
+                writer.accept(firstRow, rows(iterations, firstRow, band));
+            }
+        }
+    }
+
+    /**
+     * The rows from {@code firstRow}, in {@code band} unless the last band is shorter.
+     */
+    private static IterationBuffer rows(IterationFile iterations, int firstRow, IterationBuffer band)
+            throws IOException {
+        final int rows = Math.min(band.height, iterations.height - firstRow);
+        final IterationBuffer into = rows == band.height ? band : new IterationBuffer(band.width, rows, band.bailout);
+        iterations.read(firstRow, into);
+        return into;
+    }
+
+    /**
+     * The most rows per band that keep a band's iteration data within {@code bytes}, for an image {@code width}
+     * pixels across.
+     */
+    public static int bandHeight(int width, long bytes) {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytes / ((long) width * (Integer.BYTES + Double.BYTES))));
+    }
+}
@@ -0,0 +1,278 @@
+package fun.io;
+
+import fun.CancellationToken;
+import fun.ExponentialMap;
+import fun.Palette;
+import fun.PixelBuffer;
+import fun.PrecisionTier;
+import fun.RenderEngine;
+import fun.RenderJob;
+import fun.RenderParameters;
+import fun.RenderScheduler;
+import fun.Viewport;
+import fun.ZoomPath;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Renders the frames of a {@link ZoomPath} to numbered image files, with computing, resampling and encoding running
+ * at the same time in three stages:
+ *
+ * <ol>
+ * <li>compute: the bands of an {@link ExponentialMap} of the whole zoom, on the render threads, in the order frames
+ * first need them, and only once the first frame that needs each is within as many frames of resampling as there are
+ * buffers, so that memory holds the bands of a few frames however deep the zoom goes</li>
+ * <li>resample: each frame in turn from the bands it reads once they're done, on one thread, dropping bands that no
+ * later frame reads</li>
+ * <li>encode: each resampled frame to its file, on a few threads of their own</li>
+ * </ol>
+ *
+ * Frames are resampled into a fixed pool of pixel buffers, and a buffer only goes back in the pool once its frame is
+ * written, so a slow disk holds up resampling rather than filling memory with frames.
+ *
+ * A zoom that moves its centre, or goes deeper than doubles can follow, can't come from one exponential map, so then
+ * the compute stage renders each frame whole with a {@link RenderEngine} instead, as many at once as there are
+ * buffers, and there is nothing to resample.
+ */
+public final class FramePipeline {
+    private static final Logger LOG = Logger.getLogger(FramePipeline.class.getName());
+
+    private final ZoomPath path;
+    private final int width;
+    private final int height;
+    private final String pattern;
+    private final Palette palette;
+    private final RenderScheduler scheduler;
+    private final int buffers;
+    private final int encoders;
+    private final LongAdder computeNanos = new LongAdder();
+    private final LongAdder resampleNanos = new LongAdder();
+    private final LongAdder encodeNanos = new LongAdder();
+    private final AtomicInteger written = new AtomicInteger();
+    private long points;
+    private boolean exponential;
+    private long elapsedNanos;
+
+    /**
+     * @param pattern  file name for each frame, given the frame number, as for {@link String#format}: for example
+     *                 "zoom%05d.png". PNG if it ends in ".png", raw 8 bit RGB otherwise
+     * @param buffers  frames that may be resampled but not yet written at once
+     * @param encoders threads encoding and writing frames
+     */
+    public FramePipeline(ZoomPath path, int width, int height, String pattern, Palette palette,
+                         RenderScheduler scheduler, int buffers, int encoders) {
+        this.path = path;
+        this.width = width;
+        this.height = height;
+        this.pattern = pattern;
+        this.palette = palette;
+        this.scheduler = scheduler;
+        this.buffers = buffers;
+        this.encoders = encoders;
+    }
+
+    /**
+     * Render and write every frame, returning once the last one is written.
+     */
+    public void run() throws IOException, InterruptedException {
+        final long start = System.nanoTime();
+        final BlockingQueue<PixelBuffer> free = new ArrayBlockingQueue<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            free.add(new PixelBuffer(width, height));
+        }
+        final ExecutorService encoding = Executors.newFixedThreadPool(encoders, runnable -> {
+            final Thread thread = new Thread(runnable, "encode");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final CancellationToken cancellation =
+                new CancellationToken(new RenderJob("animate", RenderJob.Priority.BATCH));
+        final List<CompletableFuture<Void>> writes = new ArrayList<>();
+        try {
+            if (canUseExponentialMap()) {
+                exponential = true;
+                exponentialFrames(free, encoding, writes, cancellation);
+            } else {
+                wholeFrames(free, encoding, writes);
+            }
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            scheduler.cancel(cancellation);
+            encoding.shutdown();
+            encoding.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        elapsedNanos = System.nanoTime() - start;
+        LOG.info(String.format("%d frames in %d ms, %.1f frames/sec", written.get(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getFramesPerSecond()));
+    }
+
+    /**
+     * Whether every frame can come from one exponential map: a zoom into a single point, shallow enough for doubles
+     * all the way in.
+     */
+    private boolean canUseExponentialMap() {
+        if (!path.isStraight()) {
+            return false;
+        }
+        final RenderParameters deepest = path.getKeyframes().stream()
+                .min((a, b) -> Double.compare(a.width, b.width)).get();
+        final PrecisionTier tier = PrecisionTier.choose(new Viewport(deepest, width, height), path.getHighestBailout(),
+                deepest.fractal);
+        return tier == PrecisionTier.FLOAT || tier == PrecisionTier.DOUBLE;
+    }
+
+    private void exponentialFrames(BlockingQueue<PixelBuffer> free, ExecutorService encoding,
+                                   List<CompletableFuture<Void>> writes, CancellationToken cancellation)
+            throws InterruptedException, ExecutionException {
+        final RenderParameters first = path.getKeyframes().get(0);
+        final ExponentialMap map = new ExponentialMap(first.center, width, height, path.getWidestWidth() / width,
+                path.getNarrowestWidth() / width, path.getHighestBailout(), first.fractal, palette);
+        points = map.getPoints();
+        final int frames = path.getFrames();
+        final double[] deltas = new double[frames];
+        // which frames read each band first and last
+        final int[] firstUse = new int[map.getBands()], lastUse = new int[map.getBands()];
+        Arrays.fill(firstUse, Integer.MAX_VALUE);
+        Arrays.fill(lastUse, -1);
+        for (int frame = 0; frame < frames; frame++) {
+            deltas[frame] = path.frame(frame).width / width;
+            for (int band = map.firstBand(deltas[frame]); band <= map.lastBand(deltas[frame]); band++) {
+                firstUse[band] = Math.min(firstUse[band], frame);
+                lastUse[band] = frame;
+            }
+        }
+        final Integer[] order = new Integer[map.getBands()];
+        for (int band = 0; band < order.length; band++) {
+            order[band] = band;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(firstUse[a], firstUse[b]));
+        final List<CompletableFuture<Void>> bands = new ArrayList<>();
+        for (int band = 0; band < map.getBands(); band++) {
+            bands.add(null);
+        }
+        int submitted = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            // bands no later frame reads are never computed, and sort last
+            while (submitted < order.length && firstUse[order[submitted]] < Math.min(frames, frame + buffers)) {
+                final int b = order[submitted++];
+                bands.set(b, scheduler.submit(cancellation, firstUse[b], () -> {
+                    final long computeStart = System.nanoTime();
+                    map.computeBand(b);
+                    computeNanos.add(System.nanoTime() - computeStart);
+                }));
+            }
+            for (int band = map.firstBand(deltas[frame]); band <= map.lastBand(deltas[frame]); band++) {
+                bands.get(band).get();
+            }
+            final PixelBuffer pixels = free.take();
+            final long resampleStart = System.nanoTime();
+            map.frame(deltas[frame], pixels);
+            resampleNanos.add(System.nanoTime() - resampleStart);
+            for (int band = map.firstBand(deltas[frame]); band <= map.lastBand(deltas[frame]); band++) {
+                if (lastUse[band] == frame) {
+                    map.release(band);
+                }
+            }
+            writes.add(encode(frame, pixels, pixels, free, encoding));
+        }
+    }
+
+    private void wholeFrames(BlockingQueue<PixelBuffer> free, ExecutorService encoding,
+                             List<CompletableFuture<Void>> writes) throws InterruptedException {
+        final RenderEngine engine = RenderEngine.builder().scheduler(scheduler).palette(palette)
+                .priority(RenderJob.Priority.BATCH).build();
+        points = (long) width * height * path.getFrames();
+        for (int frame = 0; frame < path.getFrames(); frame++) {
+            // the engine renders into a buffer of its own, so this one only holds the frame's place in the queue
+            final PixelBuffer slot = free.take();
+            if (writes.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                free.add(slot);
+                return;
+            }
+            final int f = frame;
+            final RenderJob job = new RenderJob("frame " + frame, RenderJob.Priority.BATCH);
+            final CompletableFuture<PixelBuffer> render = engine.render(path.frame(frame), width, height, job);
+            render.whenComplete((pixels, failure) -> {
+                if (failure != null) {
+                    free.add(slot);
+                }
+            });
+            writes.add(render.thenCompose(pixels -> {
+                computeNanos.add(TimeUnit.MILLISECONDS.toNanos(job.getServiceMillis()));
+                return encode(f, pixels, slot, free, encoding);
+            }));
+        }
+    }
+
+    /**
+     * Write a frame, then put {@code slot} back in the pool.
+     */
+    private CompletableFuture<Void> encode(int frame, PixelBuffer pixels, PixelBuffer slot,
+                                           BlockingQueue<PixelBuffer> free, ExecutorService encoding) {
+        return CompletableFuture.runAsync(() -> {
+            final long encodeStart = System.nanoTime();
+            try {
+                ImageFiles.write(pixels, String.format(pattern, frame));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                free.add(slot);
+            }
+            encodeNanos.add(System.nanoTime() - encodeStart);
+            written.incrementAndGet();
+        }, encoding);
+    }
+
+    public int getFramesWritten() {
+        return written.get();
+    }
+
+    public double getFramesPerSecond() {
+        return elapsedNanos == 0 ? 0 : written.get() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Whether the frames came from an exponential map, rather than being rendered one by one.
+     */
+    public boolean isExponential() {
+        return exponential;
+    }
+
+    /**
+     * Points iterated, not counting the few at the centre of each frame of an exponential map.
+     */
+    public long getPoints() {
+        return points;
+    }
+
+    public long getComputeNanos() {
+        return computeNanos.sum();
+    }
+
+    public long getResampleNanos() {
+        return resampleNanos.sum();
+    }
+
+    public long getEncodeNanos() {
+        return encodeNanos.sum();
+    }
+}
@@ -0,0 +1,54 @@
+package fun.io;
+
+import fun.PixelBuffer;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes pixel buffers to disk. Files ending in ".png" are PNG encoded, anything else gets raw interleaved 8 bit RGB
+ * with no header.
+ */
+public final class ImageFiles {
+    private ImageFiles() {
+    }
+
+    public static boolean isPng(String fileName) {
+        return fileName.toLowerCase().endsWith(".png");
+    }
+
+    public static void write(PixelBuffer buffer, String fileName) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16)) {
+            if (isPng(fileName)) {
+                writePng(buffer, out);
+            } else {
+                writeRaw(buffer, out);
+            }
+        }
+    }
+
+    public static void writePng(PixelBuffer buffer, OutputStream out) throws IOException {
+        final PngWriter png = new PngWriter(out, buffer.width, buffer.height);
+        png.writeRows(buffer.pixels, buffer.height);
+        png.close();
+    }
+
+    public static void writeRaw(PixelBuffer buffer, OutputStream out) throws IOException {
+        writeRawRows(buffer.pixels, buffer.width, buffer.height, out);
+    }
+
+    public static void writeRawRows(int[] argb, int width, int rows, OutputStream out) throws IOException {
+        final byte[] row = new byte[width * 3];
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0, i = 0; x < width; x++) {
+                final int pixel = argb[y * width + x];
+                row[i++] = (byte) (pixel >> 16);
+                row[i++] = (byte) (pixel >> 8);
+                row[i++] = (byte) pixel;
+            }
+            out.write(row);
+        }
+    }
+}
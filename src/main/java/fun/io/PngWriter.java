@@ -0,0 +1,121 @@
+package fun.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Minimal streaming PNG encoder for 8 bit RGB images. Rows are written one at a time so the whole image never has to
+ * be held in memory, and nothing here depends on AWT or ImageIO.
+ */
+public class PngWriter implements Closeable {
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final DataOutputStream out;
+    private final int width;
+    private final int height;
+    private final byte[] rowBytes;
+    private final DeflaterOutputStream compressor;
+    private int rowsWritten = 0;
+
+    public PngWriter(OutputStream out, int width, int height) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.width = width;
+        this.height = height;
+        this.rowBytes = new byte[1 + width * 3];
+        this.out.write(SIGNATURE);
+        writeHeader();
+        this.compressor = new DeflaterOutputStream(
+                new IdatStream(), new Deflater(Deflater.BEST_SPEED), CHUNK_SIZE);
+    }
+
+    /**
+     * Write one row of packed 0xAARRGGBB pixels, starting at {@code offset} in {@code argb}. Alpha is ignored.
+     */
+    public void writeRow(int[] argb, int offset) throws IOException {
+        if (rowsWritten >= height) {
+            throw new IllegalStateException("all " + height + " rows already written");
+        }
+        rowBytes[0] = 0; // filter type: none
+        for (int x = 0, i = 1; x < width; x++) {
+            final int pixel = argb[offset + x];
+            rowBytes[i++] = (byte) (pixel >> 16);
+            rowBytes[i++] = (byte) (pixel >> 8);
+            rowBytes[i++] = (byte) pixel;
+        }
+        compressor.write(rowBytes);
+        rowsWritten++;
+    }
+
+    public void writeRows(int[] argb, int rows) throws IOException {
+        for (int row = 0; row < rows; row++) {
+            writeRow(argb, row * width);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (rowsWritten != height) {
+            throw new IllegalStateException("wrote " + rowsWritten + " of " + height + " rows");
+        }
+        compressor.finish();
+        writeChunk("IEND", new byte[0], 0);
+        out.flush();
+        out.close();
+    }
+
+    private void writeHeader() throws IOException {
+        final ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        final DataOutputStream data = new DataOutputStream(header);
+        data.writeInt(width);
+        data.writeInt(height);
+        data.writeByte(8); // bit depth
+        data.writeByte(2); // colour type: RGB
+        data.writeByte(0); // compression
+        data.writeByte(0); // filter
+        data.writeByte(0); // interlace
+        writeChunk("IHDR", header.toByteArray(), header.size());
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        final byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        final CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Cuts the compressed stream up into IDAT chunks.
+     */
+    private class IdatStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            if (off == 0) {
+                writeChunk("IDAT", b, len);
+            } else {
+                final byte[] copy = new byte[len];
+                System.arraycopy(b, off, copy, 0, len);
+                writeChunk("IDAT", copy, len);
+            }
+        }
+    }
+}
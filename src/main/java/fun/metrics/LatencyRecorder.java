@@ -0,0 +1,85 @@
+package fun.metrics;
+
+import fun.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies from a microsecond up to hours, counted in a {@link Histogram} of logarithmic buckets, so that recording is
+ * a couple of atomic adds and percentiles are accurate to within about 4%.
+ */
+public final class LatencyRecorder {
+    private static final int SUB_BUCKETS = 16; // per power of two
+    private static final int POWERS = 40;
+
+    private final Histogram buckets = new Histogram(POWERS * SUB_BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        final long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+        buckets.increment(bucketOf(micros));
+        if (micros > max.get()) {
+            max.accumulateAndGet(micros, Math::max);
+        }
+    }
+
+    public long count() {
+        return buckets.bumps();
+    }
+
+    /**
+     * The latency in milliseconds that {@code percentile} percent of recordings were at or under, or 0 if there are
+     * none.
+     */
+    public double percentileMillis(double percentile) {
+        final long[] counts = buckets.counts();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(upperBound(bucket), max.get()) / 1000.0;
+            }
+        }
+        return max.get() / 1000.0;
+    }
+
+    public double maxMillis() {
+        return max.get() / 1000.0;
+    }
+
+    private static int bucketOf(long micros) {
+        final int power = 63 - Long.numberOfLeadingZeros(micros);
+        if (power >= POWERS) {
+            return POWERS * SUB_BUCKETS - 1;
+        }
+        // the four bits below the leading one pick the sub-bucket
+        final int sub = power >= 4 ? (int) (micros >>> (power - 4)) & (SUB_BUCKETS - 1)
+                : (int) (micros << (4 - power)) & (SUB_BUCKETS - 1);
+        return power * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        final int power = bucket / SUB_BUCKETS, sub = bucket % SUB_BUCKETS;
+        final long base = 1L << power;
+        return base + (base * (sub + 1) + SUB_BUCKETS - 1) / SUB_BUCKETS - 1;
+    }
+
+    /**
+     * p50, p90, p99, p99.9 and max, in milliseconds.
+     */
+    @Override
+    public String toString() {
+        return String.format("p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms (%d)",
+                percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(99.9),
+                maxMillis(), count());
+    }
+}
@@ -0,0 +1,34 @@
+package fun.metrics;
+
+/**
+ * Where {@link RenderMetrics} sends its Flight Recorder events. The events themselves are only built into the Java 17
+ * part of the multi-release jar, as Java 8 has no {@code jdk.jfr}; anywhere else they are dropped.
+ */
+interface RenderEvents {
+    RenderEvents NONE = new RenderEvents() {
+        @Override
+        public void tile(RenderMetrics metrics, int x, int y, int w, int h, int points, long iterations,
+                         long computeNanos) {
+        }
+
+        @Override
+        public void finished(RenderMetrics metrics) {
+        }
+    };
+
+    void tile(RenderMetrics metrics, int x, int y, int w, int h, int points, long iterations, long computeNanos);
+
+    void finished(RenderMetrics metrics);
+
+    /**
+     * Flight Recorder events if this JVM can record them, and nothing otherwise.
+     */
+    static RenderEvents get() {
+        try {
+            final Class<?> events = Class.forName("fun.metrics.FlightRecorderEvents");
+            return (RenderEvents) events.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return NONE;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package fun.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters for one render: points and iterations computed, how busy the workers were on it, how long its work sat
+ * in the queue and how deep that queue was, and the times to first pixel and to completion.
+ *
+ * Every tile is also recorded as a {@code fun.TileRendered} event, and the finished render as a
+ * {@code fun.RenderCompleted} event, for Flight Recorder on JVMs that have it (see {@link RenderEvents}). Finished
+ * renders are added to {@link RenderStatistics}, which is what JMX sees.
+ */
+public final class RenderMetrics {
+    private static final AtomicLong IDS = new AtomicLong();
+    private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int MAX_SAMPLES = 1000;
+    private static final RenderEvents EVENTS = RenderEvents.get();
+
+    private final long id = IDS.incrementAndGet();
+    private final String kind;
+    private final int width;
+    private final int height;
+    private final int bailout;
+    private final String tier;
+    private final int threads;
+    private final IntSupplier queueDepth;
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong firstPixelNanos = new AtomicLong();
+    private volatile long endNanos;
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private volatile boolean cancelled;
+
+    private final LongAdder points = new LongAdder();
+    private final LongAdder iterations = new LongAdder();
+    private final LongAdder tasks = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong lastSampleNanos = new AtomicLong(startNanos - SAMPLE_INTERVAL_NANOS);
+    private final List<long[]> depthSamples = new ArrayList<>();
+
+    /**
+     * @param kind what sort of render this is, e.g. "engine" or "interactive"
+     * @param threads workers available to it, for working out utilisation
+     * @param queueDepth how much work is queued right now
+     */
+    public RenderMetrics(String kind, int width, int height, int bailout, String tier, int threads,
+                         IntSupplier queueDepth) {
+        this.kind = kind;
+        this.width = width;
+        this.height = height;
+        this.bailout = bailout;
+        this.tier = tier;
+        this.threads = threads;
+        this.queueDepth = queueDepth;
+        RenderStatistics.get().started();
+    }
+
+    /**
+     * Wrap a unit of work so that its time in the queue and its time running are counted against this render.
+     */
+    public Runnable track(Runnable work) {
+        final long queued = System.nanoTime();
+        return () -> {
+            final long start = System.nanoTime();
+            queueWaitNanos.add(start - queued);
+            sampleQueueDepth(start);
+            try {
+                work.run();
+            } finally {
+                busyNanos.add(System.nanoTime() - start);
+                tasks.increment();
+            }
+        };
+    }
+
+    /**
+     * Record a finished tile: a rectangle of the image that took {@code iterations} over {@code points} points,
+     * starting at {@code startNanos}.
+     */
+    public void tile(int x, int y, int w, int h, int tilePoints, long tileIterations, long startNanos) {
+        points.add(tilePoints);
+        iterations.add(tileIterations);
+        if (firstPixelNanos.get() == 0) {
+            firstPixelNanos.compareAndSet(0, System.nanoTime());
+        }
+        EVENTS.tile(this, x, y, w, h, tilePoints, tileIterations, System.nanoTime() - startNanos);
+    }
+
+    public void completed() {
+        finish(false);
+    }
+
+    public void cancelled() {
+        finish(true);
+    }
+
+    private void finish(boolean wasCancelled) {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        endNanos = System.nanoTime();
+        cancelled = wasCancelled;
+        EVENTS.finished(this);
+        RenderStatistics.get().finished(this);
+    }
+
+    private void sampleQueueDepth(long now) {
+        final int depth = queueDepth.getAsInt();
+        if (depth > maxQueueDepth.get()) {
+            maxQueueDepth.accumulateAndGet(depth, Math::max);
+        }
+        final long last = lastSampleNanos.get();
+        if (now - last >= SAMPLE_INTERVAL_NANOS && lastSampleNanos.compareAndSet(last, now)) {
+            synchronized (depthSamples) {
+                if (depthSamples.size() < MAX_SAMPLES) {
+                    depthSamples.add(new long[]{TimeUnit.NANOSECONDS.toMillis(now - startNanos), depth});
+                }
+            }
+        }
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public String getTier() {
+        return tier;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    int getBailout() {
+        return bailout;
+    }
+
+    /**
+     * How much work is queued right now, for all renders.
+     */
+    int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    public boolean isFinished() {
+        return finished.get();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getPoints() {
+        return points.sum();
+    }
+
+    public long getIterations() {
+        return iterations.sum();
+    }
+
+    public long getTasks() {
+        return tasks.sum();
+    }
+
+    public long getElapsedMillis() {
+        final long end = finished.get() ? endNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+
+    public long getTimeToFirstPixelMillis() {
+        final long first = firstPixelNanos.get();
+        return first == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(first - startNanos);
+    }
+
+    public double getIterationsPerSecond() {
+        final long elapsed = Math.max(1, getElapsedMillis());
+        return getIterations() * 1000.0 / elapsed;
+    }
+
+    /**
+     * The fraction of the available workers' time spent on this render while it ran.
+     */
+    public double getWorkerUtilisation() {
+        final long end = finished.get() ? endNanos : System.nanoTime();
+        final long available = Math.max(1, (end - startNanos) * threads);
+        return Math.min(1.0, busyNanos.sum() / (double) available);
+    }
+
+    /**
+     * Average time a unit of work waited between being queued and starting.
+     */
+    public double getAverageQueueWaitMillis() {
+        final long count = Math.max(1, getTasks());
+        return queueWaitNanos.sum() / 1e6 / count;
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * Queue depth over time, as {ms since start, depth} pairs, sampled at most every 10ms.
+     */
+    public long[][] getQueueDepthSamples() {
+        synchronized (depthSamples) {
+            return depthSamples.toArray(new long[0][]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s render %d (%s): %d points, %d iterations, %.3g iterations/sec, "
+                        + "first pixel %d ms, done %d ms, utilisation %.0f%%, queue wait %.2f ms, max queue %d",
+                kind, id, tier, getPoints(), getIterations(), getIterationsPerSecond(), getTimeToFirstPixelMillis(),
+                getElapsedMillis(), getWorkerUtilisation() * 100, getAverageQueueWaitMillis(), getMaxQueueDepth());
+    }
+}
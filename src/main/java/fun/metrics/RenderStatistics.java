@@ -0,0 +1,196 @@
+package fun.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide render statistics, registered with the platform MBean server as {@value #OBJECT_NAME} the first time
+ * anything renders.
+ */
+public final class RenderStatistics implements RenderStatisticsMXBean {
+    public static final String OBJECT_NAME = "fun:type=RenderStatistics";
+
+    private static final Logger LOG = Logger.getLogger(RenderStatistics.class.getName());
+
+    private static final RenderStatistics INSTANCE = register(new RenderStatistics());
+
+    private final LongAdder started = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final AtomicInteger inProgress = new AtomicInteger();
+    private final LongAdder points = new LongAdder();
+    private final LongAdder iterations = new LongAdder();
+    private volatile IntSupplier queueDepth = () -> 0;
+    private volatile RenderMetrics last;
+
+    private RenderStatistics() {
+    }
+
+    public static RenderStatistics get() {
+        return INSTANCE;
+    }
+
+    private static RenderStatistics register(RenderStatistics statistics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            LOG.log(Level.WARNING, "render statistics not available over JMX", e);
+        }
+        return statistics;
+    }
+
+    /**
+     * Where {@link #getQueueDepth()} looks for the current amount of queued work.
+     */
+    public void setQueueDepth(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    void started() {
+        started.increment();
+        inProgress.incrementAndGet();
+    }
+
+    void finished(RenderMetrics metrics) {
+        inProgress.decrementAndGet();
+        if (metrics.isCancelled()) {
+            cancelled.increment();
+        } else {
+            completed.increment();
+        }
+        points.add(metrics.getPoints());
+        iterations.add(metrics.getIterations());
+        last = metrics;
+    }
+
+    /**
+     * The most recently finished render, or null if none has.
+     */
+    public RenderMetrics getLastRender() {
+        return last;
+    }
+
+    @Override
+    public long getRendersStarted() {
+        return started.sum();
+    }
+
+    @Override
+    public long getRendersCompleted() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getRendersCancelled() {
+        return cancelled.sum();
+    }
+
+    @Override
+    public int getRendersInProgress() {
+        return inProgress.get();
+    }
+
+    @Override
+    public long getTotalPoints() {
+        return points.sum();
+    }
+
+    @Override
+    public long getTotalIterations() {
+        return iterations.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public String getLastRenderKind() {
+        final RenderMetrics metrics = last;
+        return metrics == null ? null : metrics.getKind();
+    }
+
+    @Override
+    public String getLastRenderTier() {
+        final RenderMetrics metrics = last;
+        return metrics == null ? null : metrics.getTier();
+    }
+
+    @Override
+    public long getLastRenderPoints() {
+        final RenderMetrics metrics = last;
+        return metrics == null ? 0 : metrics.getPoints();
+    }
+
+    @Override
+    public long getLastRenderIterations() {
+        final RenderMetrics metrics = last;
+        return metrics == null ? 0 : metrics.getIterations();
+    }
+
+    @Override
+    public double getLastRenderIterationsPerSecond() {
+        final RenderMetrics metrics = last;
+        return metrics == null ? 0 : metrics.getIterationsPerSecond();
+    }
+
+    @Override
+    public double getLastRenderWorkerUtilisation() {
+        final RenderMetrics metrics = last;
+        return metrics == null ? 0 : metrics.getWorkerUtilisation();
+    }
+
+    @Override
+    public double getLastRenderAverageQueueWaitMillis() {
+        final RenderMetrics metrics = last;
+        return metrics == null ? 0 : metrics.getAverageQueueWaitMillis();
+    }
+
+    @Override
+    public int getLastRenderMaxQueueDepth() {
+        final RenderMetrics metrics = last;
+        return metrics == null ? 0 : metrics.getMaxQueueDepth();
+    }
+
+    @Override
+    public long getLastRenderTimeToFirstPixelMillis() {
+        final RenderMetrics metrics = last;
+        return metrics == null ? -1 : metrics.getTimeToFirstPixelMillis();
+    }
+
+    @Override
+    public long getLastRenderTimeToCompletionMillis() {
+        final RenderMetrics metrics = last;
+        return metrics == null ? -1 : metrics.getElapsedMillis();
+    }
+
+    @Override
+    public long[] getLastRenderQueueDepthSampleTimes() {
+        return column(0);
+    }
+
+    @Override
+    public long[] getLastRenderQueueDepthSamples() {
+        return column(1);
+    }
+
+    private long[] column(int index) {
+        final RenderMetrics metrics = last;
+        if (metrics == null) {
+            return new long[0];
+        }
+        final long[][] samples = metrics.getQueueDepthSamples();
+        final long[] column = new long[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            column[i] = samples[i][index];
+        }
+        return column;
+    }
+}
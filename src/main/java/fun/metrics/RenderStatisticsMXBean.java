@@ -0,0 +1,50 @@
+package fun.metrics;
+
+/**
+ * What JMX sees of rendering: running totals across all renders, and the figures for the most recent one.
+ */
+public interface RenderStatisticsMXBean {
+    long getRendersStarted();
+
+    long getRendersCompleted();
+
+    long getRendersCancelled();
+
+    int getRendersInProgress();
+
+    long getTotalPoints();
+
+    long getTotalIterations();
+
+    int getQueueDepth();
+
+    String getLastRenderKind();
+
+    String getLastRenderTier();
+
+    long getLastRenderPoints();
+
+    long getLastRenderIterations();
+
+    double getLastRenderIterationsPerSecond();
+
+    double getLastRenderWorkerUtilisation();
+
+    double getLastRenderAverageQueueWaitMillis();
+
+    int getLastRenderMaxQueueDepth();
+
+    long getLastRenderTimeToFirstPixelMillis();
+
+    long getLastRenderTimeToCompletionMillis();
+
+    /**
+     * Milliseconds since the start of the last render at which its queue depth was sampled.
+     */
+    long[] getLastRenderQueueDepthSampleTimes();
+
+    /**
+     * The queue depths sampled at {@link #getLastRenderQueueDepthSampleTimes()}.
+     */
+    long[] getLastRenderQueueDepthSamples();
+}
@@ -0,0 +1,381 @@
+package fun.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import fun.BigComplex;
+import fun.RenderEngine;
+import fun.RenderParameters;
+import fun.io.ImageFiles;
+import fun.metrics.LatencyRecorder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the set as slippy map tiles, {@code /{z}/{x}/{y}.png}, over the JDK's built-in HTTP server.
+ *
+ * Zoom 0 is one tile covering the square from -2.5-2i to 1.5+2i, and each zoom level splits every tile into four, with
+ * x going right along the real axis and y going down the imaginary one. Tiles are rendered by a {@link RenderEngine}.
+ *
+ * Requests for a tile that's already being rendered wait for that render rather than starting another. Finished
+ * tiles are kept as PNG bytes in a least recently used cache bounded in bytes. At most a fixed number of renders may be
+ * pending at once, and requests that would need another get 503 with Retry-After until some finish. {@code /stats}
+ * reports counts and latency percentiles as JSON.
+ */
+public final class TileServer {
+    private static final Pattern TILE = Pattern.compile("/(\\d+)/(\\d+)/(\\d+)\\.png");
+    private static final BigDecimal WORLD_LEFT = new BigDecimal("-2.5");
+    private static final BigDecimal WORLD_TOP = new BigDecimal("-2");
+    private static final double WORLD_SIZE = 4;
+
+    private final HttpServer http;
+    private final ExecutorService handlers;
+    private final RenderEngine engine;
+    private final int tileSize;
+    private final int bailout;
+    private final int maxZoom;
+    private final TileBytes cache;
+    private final ConcurrentHashMap<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private final Semaphore pending;
+    private final int maxPending;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rendered = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LatencyRecorder latency = new LatencyRecorder();
+    private final LatencyRecorder hitLatency = new LatencyRecorder();
+    private final LatencyRecorder renderLatency = new LatencyRecorder();
+    private final LatencyRecorder coalescedLatency = new LatencyRecorder();
+
+    private TileServer(Builder builder) throws IOException {
+        this.engine = builder.engine;
+        this.tileSize = builder.tileSize;
+        this.bailout = builder.bailout;
+        this.maxZoom = builder.maxZoom;
+        this.cache = new TileBytes(builder.cacheBytes);
+        this.maxPending = builder.maxPending;
+        this.pending = new Semaphore(maxPending);
+        this.handlers = Executors.newFixedThreadPool(builder.handlerThreads, runnable -> {
+            final Thread thread = new Thread(runnable, "tile-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.http = HttpServer.create(new InetSocketAddress(builder.port), builder.backlog);
+        http.setExecutor(handlers);
+        http.createContext("/stats", this::stats);
+        http.createContext("/", this::tile);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int port = 8080;
+        private int backlog = 256;
+        private RenderEngine engine = new RenderEngine();
+        private int tileSize = 256;
+        private int bailout = 500;
+        private int maxZoom = 100;
+        private long cacheBytes = 256L << 20;
+        private int maxPending = 4 * Runtime.getRuntime().availableProcessors();
+        private int handlerThreads = 4;
+
+        /**
+         * Port to listen on, 0 for any free one.
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Connections the operating system may queue before the server accepts them.
+         */
+        public Builder backlog(int backlog) {
+            this.backlog = backlog;
+            return this;
+        }
+
+        public Builder engine(RenderEngine engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        public Builder tileSize(int tileSize) {
+            this.tileSize = tileSize;
+            return this;
+        }
+
+        public Builder bailout(int bailout) {
+            this.bailout = bailout;
+            return this;
+        }
+
+        public Builder maxZoom(int maxZoom) {
+            this.maxZoom = maxZoom;
+            return this;
+        }
+
+        /**
+         * How many bytes of encoded tiles to keep.
+         */
+        public Builder cacheBytes(long cacheBytes) {
+            this.cacheBytes = cacheBytes;
+            return this;
+        }
+
+        /**
+         * How many tile renders may be queued or running at once before requests are turned away.
+         */
+        public Builder maxPending(int maxPending) {
+            this.maxPending = maxPending;
+            return this;
+        }
+
+        /**
+         * Threads parsing requests and writing responses. Renders don't run on these.
+         */
+        public Builder handlerThreads(int handlerThreads) {
+            this.handlerThreads = handlerThreads;
+            return this;
+        }
+
+        public TileServer build() throws IOException {
+            return new TileServer(this);
+        }
+    }
+
+    public TileServer start() {
+        http.start();
+        return this;
+    }
+
+    public void stop() {
+        http.stop(0);
+        handlers.shutdown();
+    }
+
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    /**
+     * Render parameters for a tile, with its centre worked out exactly so that deep tiles land in the right place.
+     */
+    public RenderParameters tileParameters(int zoom, long x, long y) {
+        final BigDecimal width = BigDecimal.valueOf(WORLD_SIZE).divide(BigDecimal.valueOf(2).pow(zoom));
+        final BigDecimal half = new BigDecimal("0.5");
+        final BigComplex centre = new BigComplex(
+                WORLD_LEFT.add(width.multiply(BigDecimal.valueOf(x).add(half))),
+                WORLD_TOP.add(width.multiply(BigDecimal.valueOf(y).add(half))));
+        return new RenderParameters(centre, width.doubleValue(), bailout);
+    }
+
+    private void tile(HttpExchange exchange) throws IOException {
+        final long start = System.nanoTime();
+        requests.increment();
+        final Matcher matcher = TILE.matcher(exchange.getRequestURI().getPath());
+        if (!"GET".equals(exchange.getRequestMethod()) || !matcher.matches()) {
+            respond(exchange, 404, "text/plain", bytes("not a tile: /{z}/{x}/{y}.png\n"), null, start);
+            return;
+        }
+        final int zoom;
+        final long x, y;
+        try {
+            zoom = Integer.parseInt(matcher.group(1));
+            x = Long.parseLong(matcher.group(2));
+            y = Long.parseLong(matcher.group(3));
+        } catch (NumberFormatException e) {
+            respond(exchange, 404, "text/plain", bytes("no such tile\n"), null, start);
+            return;
+        }
+        if (zoom > maxZoom || zoom > 62 || x >= 1L << zoom || y >= 1L << zoom) {
+            respond(exchange, 404, "text/plain", bytes("no such tile\n"), null, start);
+            return;
+        }
+        final String key = zoom + "/" + x + "/" + y;
+        final byte[] cached = cache.get(key);
+        if (cached != null) {
+            hits.increment();
+            respond(exchange, 200, "image/png", cached, "hit", start);
+            hitLatency.record(System.nanoTime() - start);
+            return;
+        }
+        CompletableFuture<byte[]> png = inFlight.get(key);
+        String source = "coalesced";
+        if (png == null) {
+            if (!pending.tryAcquire()) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, "text/plain", bytes("too many tiles pending, try again\n"), null, start);
+                return;
+            }
+            final CompletableFuture<byte[]> mine = new CompletableFuture<>();
+            png = inFlight.putIfAbsent(key, mine);
+            if (png != null) {
+                pending.release();
+            } else {
+                png = mine;
+                source = "miss";
+                render(key, zoom, x, y, mine);
+            }
+        }
+        if (source.equals("coalesced")) {
+            coalesced.increment();
+        }
+        final String tileSource = source;
+        // only the request that started the render counts as one, the others just waited for it
+        final LatencyRecorder tileLatency = source.equals("miss") ? renderLatency : coalescedLatency;
+        png.whenCompleteAsync((bytes, failure) -> {
+            try {
+                if (failure != null) {
+                    failed.increment();
+                    respond(exchange, 500, "text/plain", bytes("render failed: " + failure + "\n"), null, start);
+                } else {
+                    respond(exchange, 200, "image/png", bytes, tileSource, start);
+                    tileLatency.record(System.nanoTime() - start);
+                }
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }, handlers);
+    }
+
+    private void render(String key, int zoom, long x, long y, CompletableFuture<byte[]> result) {
+        engine.render(tileParameters(zoom, x, y), tileSize, tileSize).thenApply(pixels -> {
+            final ByteArrayOutputStream png = new ByteArrayOutputStream();
+            try {
+                ImageFiles.writePng(pixels, png);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return png.toByteArray();
+        }).whenComplete((bytes, failure) -> {
+            if (bytes != null) {
+                rendered.increment();
+                cache.put(key, bytes);
+            }
+            inFlight.remove(key);
+            pending.release();
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(bytes);
+            }
+        });
+    }
+
+    private void respond(HttpExchange exchange, int status, String contentType, byte[] body, String cacheResult,
+                         long start) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if (cacheResult != null) {
+            exchange.getResponseHeaders().set("Cache-Control", "public, max-age=86400");
+            exchange.getResponseHeaders().set("X-Tile-Cache", cacheResult);
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        latency.record(System.nanoTime() - start);
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        final long start = System.nanoTime();
+        respond(exchange, 200, "application/json", bytes(statistics()), null, start);
+    }
+
+    /**
+     * Counts and latency percentiles, as the JSON that {@code /stats} serves.
+     */
+    public String statistics() {
+        return "{\n"
+                + "  \"requests\": " + requests.sum() + ",\n"
+                + "  \"cacheHits\": " + hits.sum() + ",\n"
+                + "  \"coalesced\": " + coalesced.sum() + ",\n"
+                + "  \"rendered\": " + rendered.sum() + ",\n"
+                + "  \"rejected\": " + rejected.sum() + ",\n"
+                + "  \"failed\": " + failed.sum() + ",\n"
+                + "  \"pendingRenders\": " + (maxPending - pending.availablePermits()) + ",\n"
+                + "  \"maxPendingRenders\": " + maxPending + ",\n"
+                + "  \"cachedTiles\": " + cache.size() + ",\n"
+                + "  \"cachedBytes\": " + cache.bytes() + ",\n"
+                + "  \"cacheEvictions\": " + cache.evictions() + ",\n"
+                + "  \"latency\": " + json(latency) + ",\n"
+                + "  \"hitLatency\": " + json(hitLatency) + ",\n"
+                + "  \"renderLatency\": " + json(renderLatency) + ",\n"
+                + "  \"coalescedLatency\": " + json(coalescedLatency) + "\n"
+                + "}\n";
+    }
+
+    private static String json(LatencyRecorder recorder) {
+        return String.format("{\"count\": %d, \"p50\": %.3f, \"p90\": %.3f, \"p99\": %.3f, \"p999\": %.3f, "
+                        + "\"max\": %.3f}", recorder.count(), recorder.percentileMillis(50),
+                recorder.percentileMillis(90), recorder.percentileMillis(99), recorder.percentileMillis(99.9),
+                recorder.maxMillis());
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encoded tiles, least recently used out first once they add up to more than a byte budget.
+     */
+    private static final class TileBytes {
+        private final long maxBytes;
+        private final LinkedHashMap<String, byte[]> tiles = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+        private long evictions;
+
+        TileBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized byte[] get(String key) {
+            return tiles.get(key);
+        }
+
+        synchronized void put(String key, byte[] png) {
+            final byte[] old = tiles.put(key, png);
+            bytes += png.length - (old == null ? 0 : old.length);
+            for (Iterator<Map.Entry<String, byte[]>> eldest = tiles.entrySet().iterator();
+                 bytes > maxBytes && eldest.hasNext(); ) {
+                bytes -= eldest.next().getValue().length;
+                eldest.remove();
+                evictions++;
+            }
+        }
+
+        synchronized int size() {
+            return tiles.size();
+        }
+
+        synchronized long bytes() {
+            return bytes;
+        }
+
+        synchronized long evictions() {
+            return evictions;
+        }
+    }
+}
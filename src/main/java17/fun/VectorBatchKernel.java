@@ -0,0 +1,107 @@
+package fun;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Batch kernel on the incubating vector API, one point per SIMD lane. Lanes that have escaped or reached the bailout
+ * are masked off and frozen until every lane in the vector is done. Only built into the Java 17 part of the
+ * multi-release jar, and only usable with {@code --add-modules jdk.incubator.vector}.
+ */
+public final class VectorBatchKernel implements BatchKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void iterate(double[] cx, double[] cy, int count, int bailout, int[] iterations, double[] modulusSquared) {
+        final int lanes = SPECIES.length();
+        final double[] counts = new double[lanes];
+        final double[] moduli = new double[lanes];
+        final DoubleVector four = DoubleVector.broadcast(SPECIES, 4.0);
+        final DoubleVector limit = DoubleVector.broadcast(SPECIES, bailout);
+        int i = 0;
+        for (; i + lanes <= count; i += lanes) {
+            final DoubleVector ax = DoubleVector.fromArray(SPECIES, cx, i);
+            final DoubleVector ay = DoubleVector.fromArray(SPECIES, cy, i);
+            DoubleVector zx = ax, zy = ay;
+            DoubleVector zxSquared = zx.mul(zx), zySquared = zy.mul(zy);
+            DoubleVector n = DoubleVector.zero(SPECIES);
+            VectorMask<Double> active = n.compare(VectorOperators.LT, limit)
+                    .and(zxSquared.add(zySquared).compare(VectorOperators.LT, four));
+            while (active.anyTrue()) {
+                final DoubleVector newZy = zx.mul(2).mul(zy).add(ay);
+                final DoubleVector newZx = zxSquared.sub(zySquared).add(ax);
+                zx = zx.blend(newZx, active);
+                zy = zy.blend(newZy, active);
+                n = n.add(1, active);
+                zxSquared = zx.mul(zx);
+                zySquared = zy.mul(zy);
+                active = active.and(n.compare(VectorOperators.LT, limit))
+                        .and(zxSquared.add(zySquared).compare(VectorOperators.LT, four));
+            }
+            n.intoArray(counts, 0);
+            zxSquared.add(zySquared).intoArray(moduli, 0);
+            for (int lane = 0; lane < lanes; lane++) {
+                iterations[i + lane] = (int) counts[lane];
+                modulusSquared[i + lane] = moduli[lane];
+            }
+        }
+        for (; i < count; i++) {
+            ScalarBatchKernel.iterateOne(cx, cy, i, bailout, iterations, modulusSquared);
+        }
+    }
+
+    /**
+     * The same as {@link #iterate}, but with each lane starting from its own count and z.
+     */
+    @Override
+    public void resume(double[] cx, double[] cy, int count, int bailout, int[] iterations, double[] zx, double[] zy,
+                       double[] modulusSquared) {
+        final int lanes = SPECIES.length();
+        final double[] counts = new double[lanes];
+        final double[] moduli = new double[lanes];
+        final DoubleVector four = DoubleVector.broadcast(SPECIES, 4.0);
+        final DoubleVector limit = DoubleVector.broadcast(SPECIES, bailout);
+        int i = 0;
+        for (; i + lanes <= count; i += lanes) {
+            final DoubleVector ax = DoubleVector.fromArray(SPECIES, cx, i);
+            final DoubleVector ay = DoubleVector.fromArray(SPECIES, cy, i);
+            DoubleVector x = DoubleVector.fromArray(SPECIES, zx, i), y = DoubleVector.fromArray(SPECIES, zy, i);
+            DoubleVector xSquared = x.mul(x), ySquared = y.mul(y);
+            for (int lane = 0; lane < lanes; lane++) {
+                counts[lane] = iterations[i + lane];
+            }
+            DoubleVector n = DoubleVector.fromArray(SPECIES, counts, 0);
+            VectorMask<Double> active = n.compare(VectorOperators.LT, limit)
+                    .and(xSquared.add(ySquared).compare(VectorOperators.LT, four));
+            while (active.anyTrue()) {
+                final DoubleVector newY = x.mul(2).mul(y).add(ay);
+                final DoubleVector newX = xSquared.sub(ySquared).add(ax);
+                x = x.blend(newX, active);
+                y = y.blend(newY, active);
+                n = n.add(1, active);
+                xSquared = x.mul(x);
+                ySquared = y.mul(y);
+                active = active.and(n.compare(VectorOperators.LT, limit))
+                        .and(xSquared.add(ySquared).compare(VectorOperators.LT, four));
+            }
+            n.intoArray(counts, 0);
+            x.intoArray(zx, i);
+            y.intoArray(zy, i);
+            xSquared.add(ySquared).intoArray(moduli, 0);
+            for (int lane = 0; lane < lanes; lane++) {
+                iterations[i + lane] = (int) counts[lane];
+                modulusSquared[i + lane] = moduli[lane];
+            }
+        }
+        for (; i < count; i++) {
+            ScalarBatchKernel.resumeOne(cx, cy, i, bailout, iterations, zx, zy, modulusSquared);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + SPECIES.length() + "x64";
+    }
+}
@@ -0,0 +1,57 @@
+package fun;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Single precision version of {@link VectorBatchKernel}, with twice the lanes per vector.
+ */
+public final class VectorFloatBatchKernel implements FloatBatchKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void iterate(float[] cx, float[] cy, int count, int bailout, int[] iterations, double[] modulusSquared) {
+        final int lanes = SPECIES.length();
+        final float[] counts = new float[lanes];
+        final float[] moduli = new float[lanes];
+        final FloatVector four = FloatVector.broadcast(SPECIES, 4.0f);
+        final FloatVector limit = FloatVector.broadcast(SPECIES, bailout);
+        int i = 0;
+        for (; i + lanes <= count; i += lanes) {
+            final FloatVector ax = FloatVector.fromArray(SPECIES, cx, i);
+            final FloatVector ay = FloatVector.fromArray(SPECIES, cy, i);
+            FloatVector zx = ax, zy = ay;
+            FloatVector zxSquared = zx.mul(zx), zySquared = zy.mul(zy);
+            FloatVector n = FloatVector.zero(SPECIES);
+            VectorMask<Float> active = n.compare(VectorOperators.LT, limit)
+                    .and(zxSquared.add(zySquared).compare(VectorOperators.LT, four));
+            while (active.anyTrue()) {
+                final FloatVector newZy = zx.mul(2).mul(zy).add(ay);
+                final FloatVector newZx = zxSquared.sub(zySquared).add(ax);
+                zx = zx.blend(newZx, active);
+                zy = zy.blend(newZy, active);
+                n = n.add(1, active);
+                zxSquared = zx.mul(zx);
+                zySquared = zy.mul(zy);
+                active = active.and(n.compare(VectorOperators.LT, limit))
+                        .and(zxSquared.add(zySquared).compare(VectorOperators.LT, four));
+            }
+            n.intoArray(counts, 0);
+            zxSquared.add(zySquared).intoArray(moduli, 0);
+            for (int lane = 0; lane < lanes; lane++) {
+                iterations[i + lane] = (int) counts[lane];
+                modulusSquared[i + lane] = moduli[lane];
+            }
+        }
+        for (; i < count; i++) {
+            ScalarFloatBatchKernel.iterateOne(cx, cy, i, bailout, iterations, modulusSquared);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + SPECIES.length() + "x32";
+    }
+}
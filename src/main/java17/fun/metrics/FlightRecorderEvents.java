@@ -0,0 +1,56 @@
+package fun.metrics;
+
+import jdk.jfr.EventType;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders as {@link TileRenderedEvent}s and {@link RenderCompletedEvent}s. Events are only allocated while a recording
+ * has them enabled.
+ */
+final class FlightRecorderEvents implements RenderEvents {
+    private final EventType tileType = EventType.getEventType(TileRenderedEvent.class);
+    private final EventType renderType = EventType.getEventType(RenderCompletedEvent.class);
+
+    @Override
+    public void tile(RenderMetrics metrics, int x, int y, int w, int h, int points, long iterations,
+                     long computeNanos) {
+        if (!tileType.isEnabled()) {
+            return;
+        }
+        final TileRenderedEvent event = new TileRenderedEvent();
+        event.renderId = metrics.getId();
+        event.x = x;
+        event.y = y;
+        event.width = w;
+        event.height = h;
+        event.points = points;
+        event.iterations = iterations;
+        event.queueDepth = metrics.getQueueDepth();
+        event.computeTime = computeNanos;
+        event.commit();
+    }
+
+    @Override
+    public void finished(RenderMetrics metrics) {
+        if (!renderType.isEnabled()) {
+            return;
+        }
+        final RenderCompletedEvent event = new RenderCompletedEvent();
+        event.renderId = metrics.getId();
+        event.kind = metrics.getKind();
+        event.imageWidth = metrics.getWidth();
+        event.imageHeight = metrics.getHeight();
+        event.bailout = metrics.getBailout();
+        event.tier = metrics.getTier();
+        event.cancelled = metrics.isCancelled();
+        event.points = metrics.getPoints();
+        event.iterations = metrics.getIterations();
+        event.iterationsPerSecond = metrics.getIterationsPerSecond();
+        event.workerUtilisation = metrics.getWorkerUtilisation();
+        event.maxQueueDepth = metrics.getMaxQueueDepth();
+        event.timeToFirstPixel = TimeUnit.MILLISECONDS.toNanos(metrics.getTimeToFirstPixelMillis());
+        event.timeToCompletion = TimeUnit.MILLISECONDS.toNanos(metrics.getElapsedMillis());
+        event.commit();
+    }
+}
@@ -0,0 +1,62 @@
+package fun.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for a whole render finishing or being cancelled.
+ */
+@Name("fun.RenderCompleted")
+@Label("Render Completed")
+@Category({"Mandelbrot", "Rendering"})
+@Description("Totals for one finished or cancelled render")
+class RenderCompletedEvent extends jdk.jfr.Event {
+    @Label("Render Id")
+    public long renderId;
+
+    @Label("Kind")
+    public String kind;
+
+    @Label("Image Width")
+    public int imageWidth;
+
+    @Label("Image Height")
+    public int imageHeight;
+
+    @Label("Bailout")
+    public int bailout;
+
+    @Label("Precision Tier")
+    public String tier;
+
+    @Label("Cancelled")
+    public boolean cancelled;
+
+    @Label("Points")
+    public long points;
+
+    @Label("Iterations")
+    public long iterations;
+
+    @Label("Iterations Per Second")
+    public double iterationsPerSecond;
+
+    @Label("Worker Utilisation")
+    @Percentage
+    public double workerUtilisation;
+
+    @Label("Max Queue Depth")
+    public int maxQueueDepth;
+
+    @Label("Time To First Pixel")
+    @Timespan(Timespan.NANOSECONDS)
+    public long timeToFirstPixel;
+
+    @Label("Time To Completion")
+    @Timespan(Timespan.NANOSECONDS)
+    public long timeToCompletion;
+}
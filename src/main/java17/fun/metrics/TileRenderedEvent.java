@@ -0,0 +1,45 @@
+package fun.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for one unit of render work finishing.
+ */
+@Name("fun.TileRendered")
+@Label("Tile Rendered")
+@Category({"Mandelbrot", "Rendering"})
+@Description("A rectangle of an image computed by one unit of render work")
+class TileRenderedEvent extends jdk.jfr.Event {
+    @Label("Render Id")
+    public long renderId;
+
+    @Label("X")
+    public int x;
+
+    @Label("Y")
+    public int y;
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    @Label("Points")
+    public int points;
+
+    @Label("Iterations")
+    public long iterations;
+
+    @Label("Queue Depth")
+    @Description("Units of render work queued when this one finished")
+    public int queueDepth;
+
+    @Label("Compute Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long computeTime;
+}